@@ -0,0 +1,206 @@
+// AlsTrainer.java
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Alternating least squares for explicit ratings. With the movie factors
+ * fixed, each user's factors are the solution of a small rank x rank
+ * regularized least-squares system over the movies they rated, and the other
+ * way round for movies. Every solve is independent, so each half-step runs one
+ * user (or movie) per task on the common ForkJoin pool.
+ *
+ * Ratings are centered on the global mean. Regularization is weighted by the
+ * number of ratings (ALS-WR), so heavy raters are not over-shrunk and light
+ * raters are not over-fitted.
+ */
+public class AlsTrainer {
+    public static final int DEFAULT_RANK = 32;
+    public static final double DEFAULT_LAMBDA = 0.05;
+    public static final int DEFAULT_ITERATIONS = 10;
+
+    private final int rank;
+    private final double lambda;
+    private final int iterations;
+    private final long seed;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Called after every iteration with its wall time (both half-steps) and the
+     * training RMSE it reached.
+     */
+    public interface IterationListener {
+        void onIteration(int iteration, long nanos, double rmse);
+    }
+
+    public AlsTrainer() {
+        this(DEFAULT_RANK, DEFAULT_LAMBDA, DEFAULT_ITERATIONS, 42L);
+    }
+
+    public AlsTrainer(int rank, double lambda, int iterations, long seed) {
+        if (rank <= 0 || lambda <= 0 || iterations <= 0) {
+            throw new IllegalArgumentException("rank, lambda and iterations must be positive");
+        }
+        this.rank = rank;
+        this.lambda = lambda;
+        this.iterations = iterations;
+        this.seed = seed;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(rank));
+    }
+
+    public FactorModel train(RatingMatrix ratings) {
+        return train(ratings, (iteration, nanos, rmse) -> { });
+    }
+
+    /**
+     * Trains on every rating in the matrix. Writes to the matrix must not run
+     * concurrently with training.
+     */
+    public FactorModel train(RatingMatrix ratings, IterationListener listener) {
+        int[] userIds = IntStream.range(0, ratings.userIdBound()).filter(id -> ratings.rowSize(id) > 0).toArray();
+        int[] movieIds = IntStream.range(0, ratings.movieIdBound()).filter(id -> ratings.columnSize(id) > 0).toArray();
+        int[] userIndex = indexById(userIds, ratings.userIdBound());
+        int[] movieIndex = indexById(movieIds, ratings.movieIdBound());
+
+        double sum = 0.0;
+        for (int userId : userIds) {
+            sum += ratings.rowMean(userId) * ratings.rowSize(userId);
+        }
+        float globalMean = ratings.size() > 0 ? (float) (sum / ratings.size()) : 0f;
+
+        float[] userFactors = new float[userIds.length * rank];
+        float[] itemFactors = new float[movieIds.length * rank];
+        Random random = new Random(seed);
+        for (int i = 0; i < itemFactors.length; i++) {
+            itemFactors[i] = (float) (random.nextGaussian() * 0.1);
+        }
+
+        for (int iteration = 1; iteration <= iterations; iteration++) {
+            long start = System.nanoTime();
+            IntStream.range(0, userIds.length).parallel().forEach(user -> {
+                int userId = userIds[user];
+                solve(ratings.rowMovieIds(userId), ratings.rowRatings(userId), ratings.rowSize(userId),
+                      movieIndex, itemFactors, globalMean, userFactors, user * rank);
+            });
+            IntStream.range(0, movieIds.length).parallel().forEach(item -> {
+                int movieId = movieIds[item];
+                solve(ratings.columnUserIds(movieId), ratings.columnRatings(movieId), ratings.columnSize(movieId),
+                      userIndex, userFactors, globalMean, itemFactors, item * rank);
+            });
+            long nanos = System.nanoTime() - start;
+            listener.onIteration(iteration, nanos, rmse(ratings, userIds, movieIndex, userFactors, itemFactors, globalMean));
+        }
+
+        return new FactorModel(System.currentTimeMillis(), rank, globalMean, userIds, userFactors, movieIds, itemFactors);
+    }
+
+    /**
+     * Solves (sum of y y^T + lambda n I) x = sum of (r - mean) y over one row's
+     * n ratings, where y are the fixed factors of the other side, and writes x
+     * to target at targetOffset.
+     */
+    private void solve(int[] otherIds, float[] values, int count, int[] otherIndex, float[] otherFactors,
+                       float globalMean, float[] target, int targetOffset) {
+        Scratch s = scratch.get();
+        double[] a = s.a;
+        double[] b = s.b;
+        Arrays.fill(a, 0.0);
+        Arrays.fill(b, 0.0);
+
+        for (int n = 0; n < count; n++) {
+            int offset = otherIndex[otherIds[n]] * rank;
+            double residual = values[n] - globalMean;
+            for (int i = 0; i < rank; i++) {
+                double yi = otherFactors[offset + i];
+                b[i] += residual * yi;
+                // Lower triangle only; Cholesky never reads the rest
+                for (int j = 0; j <= i; j++) {
+                    a[i * rank + j] += yi * otherFactors[offset + j];
+                }
+            }
+        }
+        double regularization = lambda * Math.max(1, count);
+        for (int i = 0; i < rank; i++) {
+            a[i * rank + i] += regularization;
+        }
+
+        choleskySolve(a, b, rank);
+        for (int i = 0; i < rank; i++) {
+            target[targetOffset + i] = (float) b[i];
+        }
+    }
+
+    // Factors the symmetric positive definite lower triangle of a in place, then solves into b
+    private static void choleskySolve(double[] a, double[] b, int n) {
+        for (int j = 0; j < n; j++) {
+            double diagonal = a[j * n + j];
+            for (int k = 0; k < j; k++) {
+                diagonal -= a[j * n + k] * a[j * n + k];
+            }
+            diagonal = Math.sqrt(diagonal);
+            a[j * n + j] = diagonal;
+            for (int i = j + 1; i < n; i++) {
+                double value = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    value -= a[i * n + k] * a[j * n + k];
+                }
+                a[i * n + j] = value / diagonal;
+            }
+        }
+        // L z = b, then L^T x = z
+        for (int i = 0; i < n; i++) {
+            double value = b[i];
+            for (int k = 0; k < i; k++) {
+                value -= a[i * n + k] * b[k];
+            }
+            b[i] = value / a[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double value = b[i];
+            for (int k = i + 1; k < n; k++) {
+                value -= a[k * n + i] * b[k];
+            }
+            b[i] = value / a[i * n + i];
+        }
+    }
+
+    private double rmse(RatingMatrix ratings, int[] userIds, int[] movieIndex,
+                        float[] userFactors, float[] itemFactors, float globalMean) {
+        double squaredError = IntStream.range(0, userIds.length).parallel().mapToDouble(user -> {
+            int userId = userIds[user];
+            int[] movieIds = ratings.rowMovieIds(userId);
+            float[] values = ratings.rowRatings(userId);
+            double error = 0.0;
+            for (int n = 0; n < ratings.rowSize(userId); n++) {
+                int itemOffset = movieIndex[movieIds[n]] * rank;
+                double prediction = globalMean;
+                for (int i = 0; i < rank; i++) {
+                    prediction += userFactors[user * rank + i] * itemFactors[itemOffset + i];
+                }
+                error += (values[n] - prediction) * (values[n] - prediction);
+            }
+            return error;
+        }).sum();
+        return ratings.size() > 0 ? Math.sqrt(squaredError / ratings.size()) : 0.0;
+    }
+
+    private static int[] indexById(int[] ids, int idBound) {
+        int[] index = new int[idBound];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < ids.length; i++) {
+            index[ids[i]] = i;
+        }
+        return index;
+    }
+
+    // Per-thread normal equations, reused across solves
+    private static class Scratch {
+        final double[] a;
+        final double[] b;
+
+        Scratch(int rank) {
+            this.a = new double[rank * rank];
+            this.b = new double[rank];
+        }
+    }
+}
@@ -0,0 +1,256 @@
+// FactorModel.java
+import java.io.*;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Latent factors from matrix factorization: every user and every movie is a
+ * vector of rank floats, and a predicted rating is the global mean plus the
+ * dot product of the two. Factors are stored row after row in one float[] per
+ * side, so scoring a user against the catalog is a single sequential pass.
+ *
+ * Models are immutable and saved as versioned files, als-{version}.factors,
+ * where the version is the training time in epoch milliseconds. A model may
+ * carry an HNSW index over its movie factors, saved next to it as
+ * als-{version}.hnsw, for approximate top-k without scanning the catalog.
+ */
+public class FactorModel {
+    private static final int MAGIC = 0x414C5346; // "ALSF"
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_PREFIX = "als-";
+    private static final String FILE_SUFFIX = ".factors";
+    private static final String INDEX_SUFFIX = ".hnsw";
+
+    private final long version;
+    private final int rank;
+    private final float globalMean;
+    private final int[] userIds;   // sorted ascending
+    private final float[] userFactors;
+    private final int[] movieIds;  // sorted ascending
+    private final float[] itemFactors;
+    private final HnswIndex movieIndex; // null unless one was attached
+
+    public FactorModel(long version, int rank, float globalMean,
+                       int[] userIds, float[] userFactors, int[] movieIds, float[] itemFactors) {
+        this(version, rank, globalMean, userIds, userFactors, movieIds, itemFactors, null);
+    }
+
+    private FactorModel(long version, int rank, float globalMean, int[] userIds, float[] userFactors,
+                        int[] movieIds, float[] itemFactors, HnswIndex movieIndex) {
+        if (userFactors.length != (long) userIds.length * rank || itemFactors.length != (long) movieIds.length * rank) {
+            throw new IllegalArgumentException("Factor arrays do not match ids and rank " + rank);
+        }
+        this.version = version;
+        this.rank = rank;
+        this.globalMean = globalMean;
+        this.userIds = userIds;
+        this.userFactors = userFactors;
+        this.movieIds = movieIds;
+        this.itemFactors = itemFactors;
+        this.movieIndex = movieIndex;
+    }
+
+    public long getVersion() { return version; }
+    public int getRank() { return rank; }
+    public int getUserCount() { return userIds.length; }
+    public int getMovieCount() { return movieIds.length; }
+    public HnswIndex getMovieIndex() { return movieIndex; }
+
+    public boolean hasUser(int userId) {
+        return Arrays.binarySearch(userIds, userId) >= 0;
+    }
+
+    /**
+     * Predicted rating, or NaN if the model was not trained on the user or movie.
+     */
+    public double predict(int userId, int movieId) {
+        int user = Arrays.binarySearch(userIds, userId);
+        int item = Arrays.binarySearch(movieIds, movieId);
+        if (user < 0 || item < 0) return Double.NaN;
+        return globalMean + dot(userFactors, user * rank, itemFactors, item * rank);
+    }
+
+    /**
+     * The k movies with the highest predicted rating for a user, skipping those
+     * the filter excludes, already sorted. Empty for a user the model was not
+     * trained on.
+     */
+    public TopKSelector topMovies(int userId, int k, IntPredicate excluded) {
+        TopKSelector top = new TopKSelector(k);
+        int user = Arrays.binarySearch(userIds, userId);
+        if (user >= 0) {
+            int userOffset = user * rank;
+            for (int item = 0, offset = 0; item < movieIds.length; item++, offset += rank) {
+                double score = globalMean + dot(userFactors, userOffset, itemFactors, offset);
+                // The filter may be a lookup, so only ask it about movies that would make the cut
+                if (top.accepts(score) && !excluded.test(movieIds[item])) {
+                    top.offer(movieIds[item], score);
+                }
+            }
+        }
+        top.sort();
+        return top;
+    }
+
+    /**
+     * Like topMovies, but walks the movie index instead of scanning the catalog,
+     * so a few true top movies may be missed. Scores leave out the global mean.
+     * Falls back to the exact scan when no index is attached.
+     */
+    public TopKSelector approximateTopMovies(int userId, int k, IntPredicate excluded) {
+        int user = Arrays.binarySearch(userIds, userId);
+        if (movieIndex == null || user < 0) {
+            return topMovies(userId, k, excluded);
+        }
+        return movieIndex.search(Arrays.copyOfRange(userFactors, user * rank, (user + 1) * rank), k, excluded);
+    }
+
+    /**
+     * Builds an HNSW index over the movie factors; attach it with
+     * withMovieIndex.
+     */
+    public HnswIndex buildMovieIndex(int m, int efConstruction) {
+        return HnswIndex.build(movieIds, itemFactors, rank, m, efConstruction, version);
+    }
+
+    /**
+     * The same model with an index for approximateTopMovies, which must have
+     * been built from this model's movie factors.
+     */
+    public FactorModel withMovieIndex(HnswIndex index) {
+        if (index != null && (index.size() != movieIds.length || index.getDimension() != rank)) {
+            throw new IllegalArgumentException(index + " does not match " + this);
+        }
+        return new FactorModel(version, rank, globalMean, userIds, userFactors, movieIds, itemFactors, index);
+    }
+
+    private float dot(float[] a, int aOffset, float[] b, int bOffset) {
+        float sum = 0f;
+        for (int i = 0; i < rank; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Writes the model to dir/als-{version}.factors, and its movie index, if
+     * any, to dir/als-{version}.hnsw. Each file appears atomically, the index
+     * first, so a reader never loads a partial model or misses its index.
+     */
+    public Path saveVersioned(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        if (movieIndex != null) {
+            moveIntoPlace(dir, dir.resolve(FILE_PREFIX + version + INDEX_SUFFIX), movieIndex::save);
+        }
+        Path file = dir.resolve(FILE_PREFIX + version + FILE_SUFFIX);
+        moveIntoPlace(dir, file, this::save);
+        return file;
+    }
+
+    private interface Saver {
+        void write(Path file) throws IOException;
+    }
+
+    private static void moveIntoPlace(Path dir, Path file, Saver saver) throws IOException {
+        Path temp = Files.createTempFile(dir, FILE_PREFIX, ".tmp");
+        try {
+            saver.write(temp);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(version);
+            out.writeInt(rank);
+            out.writeFloat(globalMean);
+            writeSide(out, userIds, userFactors);
+            writeSide(out, movieIds, itemFactors);
+        }
+    }
+
+    public static FactorModel load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a factor file");
+            }
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException(file + " has unsupported format version " + formatVersion);
+            }
+            long version = in.readLong();
+            int rank = in.readInt();
+            float globalMean = in.readFloat();
+            int[] userIds = readIds(in);
+            float[] userFactors = readFactors(in, userIds.length, rank);
+            int[] movieIds = readIds(in);
+            float[] itemFactors = readFactors(in, movieIds.length, rank);
+            return new FactorModel(version, rank, globalMean, userIds, userFactors, movieIds, itemFactors);
+        }
+    }
+
+    /**
+     * Loads the highest version in a directory, with its movie index when one
+     * was saved, or returns null if it holds no factor files.
+     */
+    public static FactorModel loadLatest(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return null;
+        Path latest = null;
+        long latestVersion = Long.MIN_VALUE;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long version = Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                    if (version > latestVersion) {
+                        latestVersion = version;
+                        latest = file;
+                    }
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        if (latest == null) return null;
+        FactorModel model = load(latest);
+        Path index = dir.resolve(FILE_PREFIX + latestVersion + INDEX_SUFFIX);
+        return Files.exists(index) ? model.withMovieIndex(HnswIndex.load(index)) : model;
+    }
+
+    private static void writeSide(DataOutputStream out, int[] ids, float[] factors) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+        for (float factor : factors) {
+            out.writeFloat(factor);
+        }
+    }
+
+    private static int[] readIds(DataInputStream in) throws IOException {
+        int[] ids = new int[in.readInt()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = in.readInt();
+        }
+        return ids;
+    }
+
+    private static float[] readFactors(DataInputStream in, int count, int rank) throws IOException {
+        float[] factors = new float[count * rank];
+        for (int i = 0; i < factors.length; i++) {
+            factors[i] = in.readFloat();
+        }
+        return factors;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FactorModel{version=%d, rank=%d, users=%d, movies=%d, indexed=%b}",
+                             version, rank, userIds.length, movieIds.length, movieIndex != null);
+    }
+}
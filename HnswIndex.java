@@ -0,0 +1,566 @@
+// HnswIndex.java
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph for approximate maximum inner
+ * product search over movie vectors. Each vector x gets an extra component
+ * sqrt(maxNorm^2 - |x|^2), so every stored vector has the same norm. The
+ * nearest stored vector by Euclidean distance to a query padded with 0 is
+ * then the one with the largest inner product.
+ *
+ * The graph lives in flat primitive buffers: vectors row after row, layer 0
+ * adjacency as fixed blocks of (count, neighbors...) per node, and upper
+ * layers packed into one buffer addressed by a per-node offset. Built indexes
+ * wrap heap arrays, and loaded ones map the saved file directly, so a large
+ * index is paged in by the OS instead of being read onto the heap.
+ *
+ * An index is immutable once built. Searches may run concurrently; each
+ * thread keeps its own scratch space. ef, the size of the search beam, trades
+ * recall for latency and can be set per search.
+ */
+public class HnswIndex {
+    public static final int DEFAULT_M = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 200;
+    public static final int DEFAULT_EF = 64;
+
+    private static final int MAGIC = 0x484E5357; // "HNSW"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_INTS = 10;
+    private static final int MAX_LEVEL = 16;
+
+    private final int size;
+    private final int dimension;         // of the callers' vectors; stored rows have one more
+    private final int m;                 // links per node on upper layers
+    private final int m0;                // links per node on layer 0
+    private final int entryPoint;
+    private final int maxLevel;
+    private final IntBuffer ids;
+    private final IntBuffer levels;
+    private final IntBuffer upperOffsets; // start of each node's upper-layer blocks in upperLinks
+    private final IntBuffer layer0;       // size blocks of (1 + m0)
+    private final IntBuffer upperLinks;   // blocks of (1 + m) for layers 1..level
+    private final FloatBuffer vectors;    // size rows of (dimension + 1)
+    private volatile int defaultEf = DEFAULT_EF;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    private HnswIndex(int size, int dimension, int m, int entryPoint, int maxLevel,
+                      IntBuffer ids, IntBuffer levels, IntBuffer upperOffsets, IntBuffer layer0,
+                      IntBuffer upperLinks, FloatBuffer vectors) {
+        this.size = size;
+        this.dimension = dimension;
+        this.m = m;
+        this.m0 = 2 * m;
+        this.entryPoint = entryPoint;
+        this.maxLevel = maxLevel;
+        this.ids = ids;
+        this.levels = levels;
+        this.upperOffsets = upperOffsets;
+        this.layer0 = layer0;
+        this.upperLinks = upperLinks;
+        this.vectors = vectors;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(size, dimension + 1));
+    }
+
+    public int size() { return size; }
+    public int getDimension() { return dimension; }
+    public int getDefaultEf() { return defaultEf; }
+
+    public void setDefaultEf(int ef) {
+        if (ef <= 0) {
+            throw new IllegalArgumentException("ef must be positive: " + ef);
+        }
+        this.defaultEf = ef;
+    }
+
+    // ---- Building ----
+
+    /**
+     * Indexes vectors (ids.length rows of dimension floats, row after row) for
+     * inner product search. Inserts are sequential; the same inputs and seed
+     * always build the same graph.
+     */
+    public static HnswIndex build(int[] ids, float[] vectors, int dimension, int m, int efConstruction, long seed) {
+        if (vectors.length != (long) ids.length * dimension) {
+            throw new IllegalArgumentException("Expected " + ids.length + " vectors of dimension " + dimension);
+        }
+        if (m < 2 || efConstruction < m) {
+            throw new IllegalArgumentException("m must be at least 2 and efConstruction at least m");
+        }
+        int size = ids.length;
+        int stride = dimension + 1;
+
+        // Pad every vector to the largest norm
+        double maxSquaredNorm = 0.0;
+        for (int i = 0; i < size; i++) {
+            maxSquaredNorm = Math.max(maxSquaredNorm, squaredNorm(vectors, i * dimension, dimension));
+        }
+        float[] padded = new float[size * stride];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(vectors, i * dimension, padded, i * stride, dimension);
+            padded[i * stride + dimension] = (float) Math.sqrt(Math.max(0.0, maxSquaredNorm - squaredNorm(vectors, i * dimension, dimension)));
+        }
+
+        // Levels are drawn up front, so every adjacency block can be allocated once
+        Random random = new Random(seed);
+        double levelScale = 1.0 / Math.log(m);
+        int[] levels = new int[size];
+        int[] upperOffsets = new int[size];
+        int upperLength = 0;
+        for (int i = 0; i < size; i++) {
+            levels[i] = Math.min(MAX_LEVEL, (int) (-Math.log(1.0 - random.nextDouble()) * levelScale));
+            upperOffsets[i] = upperLength;
+            upperLength += levels[i] * (1 + m);
+        }
+
+        HnswIndex index = new HnswIndex(size, dimension, m, 0, size > 0 ? levels[0] : 0,
+                IntBuffer.wrap(ids.clone()), IntBuffer.wrap(levels), IntBuffer.wrap(upperOffsets),
+                IntBuffer.wrap(new int[size * (1 + 2 * m)]), IntBuffer.wrap(new int[upperLength]),
+                FloatBuffer.wrap(padded));
+        return index.insertAll(efConstruction);
+    }
+
+    // Inserts nodes 1..size-1 after node 0, tracking the entry point as the graph grows
+    private HnswIndex insertAll(int efConstruction) {
+        int entry = 0;
+        int topLevel = size > 0 ? levels.get(0) : 0;
+        Scratch s = scratch.get();
+        for (int node = 1; node < size; node++) {
+            int level = levels.get(node);
+            vectors.get(node * (dimension + 1), s.query);
+            int current = entry;
+            for (int layer = topLevel; layer > level; layer--) {
+                current = greedyClosest(s.query, current, layer);
+            }
+            for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+                NodeHeap found = searchLayer(s, current, efConstruction, layer);
+                int[] candidates = found.sortedAscending();
+                int limit = layer == 0 ? m0 : m;
+                int[] selected = selectNeighbors(node, candidates, m);
+                setLinks(node, layer, selected, selected.length);
+                for (int neighbor : selected) {
+                    addLink(neighbor, node, layer, limit);
+                }
+                current = candidates[0];
+            }
+            if (level > topLevel) {
+                entry = node;
+                topLevel = level;
+            }
+        }
+        return new HnswIndex(size, dimension, m, entry, topLevel, ids, levels, upperOffsets, layer0, upperLinks, vectors);
+    }
+
+    /**
+     * Prefers a candidate only if it is closer to the node than to every
+     * neighbor kept so far, so links spread in different directions instead of
+     * clustering, then fills any free slots with the nearest of the rest.
+     * Candidates come nearest first.
+     */
+    private int[] selectNeighbors(int node, int[] candidates, int limit) {
+        int[] selected = new int[Math.min(limit, candidates.length)];
+        boolean[] taken = new boolean[candidates.length];
+        int count = 0;
+        for (int i = 0; i < candidates.length && count < selected.length; i++) {
+            int candidate = candidates[i];
+            if (candidate == node) continue;
+            float distance = distance(node, candidate);
+            boolean keep = true;
+            for (int j = 0; j < count && keep; j++) {
+                keep = distance(candidate, selected[j]) > distance;
+            }
+            if (keep) {
+                selected[count++] = candidate;
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < candidates.length && count < selected.length; i++) {
+            if (!taken[i] && candidates[i] != node) selected[count++] = candidates[i];
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    private void addLink(int node, int newNeighbor, int layer, int limit) {
+        int block = linkBlock(node, layer);
+        IntBuffer links = layer == 0 ? layer0 : upperLinks;
+        int count = links.get(block);
+        if (count < limit) {
+            links.put(block + 1 + count, newNeighbor);
+            links.put(block, count + 1);
+            return;
+        }
+        // Full: re-select among the old links plus the new one, nearest first
+        int[] candidates = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = links.get(block + 1 + i);
+        }
+        candidates[count] = newNeighbor;
+        sortByDistance(node, candidates);
+        int[] selected = selectNeighbors(node, candidates, limit);
+        setLinks(node, layer, selected, selected.length);
+    }
+
+    private void setLinks(int node, int layer, int[] neighbors, int count) {
+        int block = linkBlock(node, layer);
+        IntBuffer links = layer == 0 ? layer0 : upperLinks;
+        links.put(block, count);
+        for (int i = 0; i < count; i++) {
+            links.put(block + 1 + i, neighbors[i]);
+        }
+    }
+
+    private void sortByDistance(int node, int[] candidates) {
+        long[] keyed = new long[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            // Non-negative floats order like their bit patterns
+            keyed[i] = ((long) Float.floatToIntBits(distance(node, candidates[i])) << 32) | (candidates[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(keyed);
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = (int) keyed[i];
+        }
+    }
+
+    // ---- Searching ----
+
+    /**
+     * The k ids with the largest inner product with the query, using the
+     * default ef, already sorted.
+     */
+    public TopKSelector search(float[] query, int k, IntPredicate excluded) {
+        return search(query, k, defaultEf, excluded);
+    }
+
+    /**
+     * The k ids with the largest inner product with the query, already sorted.
+     * Excluded ids are still walked through but never returned, so fewer than k
+     * come back when more than ef - k of the nearest are excluded.
+     */
+    public TopKSelector search(float[] query, int k, int ef, IntPredicate excluded) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Query has dimension " + query.length + ", index has " + dimension);
+        }
+        TopKSelector top = new TopKSelector(k);
+        if (size == 0 || k == 0) {
+            top.sort();
+            return top;
+        }
+
+        Scratch s = scratch.get();
+        System.arraycopy(query, 0, s.query, 0, dimension);
+        s.query[dimension] = 0f;
+
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > 0; layer--) {
+            current = greedyClosest(s.query, current, layer);
+        }
+        NodeHeap found = searchLayer(s, current, Math.max(ef, k), 0);
+        // Nearest first is best first, so the first k not excluded are the answer
+        for (int node : found.sortedAscending()) {
+            if (top.size() == k) break;
+            int id = ids.get(node);
+            if (!excluded.test(id)) {
+                top.offer(id, innerProduct(s.query, node));
+            }
+        }
+        top.sort();
+        return top;
+    }
+
+    /**
+     * Exact top k by scanning every vector, for measuring recall.
+     */
+    public TopKSelector exactSearch(float[] query, int k, IntPredicate excluded) {
+        TopKSelector top = new TopKSelector(k);
+        for (int node = 0; node < size; node++) {
+            double score = innerProduct(query, node);
+            if (top.accepts(score) && !excluded.test(ids.get(node))) {
+                top.offer(ids.get(node), score);
+            }
+        }
+        top.sort();
+        return top;
+    }
+
+    // Follows closer neighbors on one layer until none is closer
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int block = linkBlock(current, layer);
+            IntBuffer links = layer == 0 ? layer0 : upperLinks;
+            int count = links.get(block);
+            for (int i = 0; i < count; i++) {
+                int neighbor = links.get(block + 1 + i);
+                float distance = distance(query, neighbor);
+                if (distance < currentDistance) {
+                    currentDistance = distance;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer from the padded query in scratch. Returns up to
+     * ef nearest nodes as a max-heap by distance.
+     */
+    private NodeHeap searchLayer(Scratch s, int start, int ef, int layer) {
+        s.nextVisit();
+        NodeHeap candidates = s.candidates.reset(false);
+        NodeHeap results = s.results.reset(true);
+        float startDistance = distance(s.query, start);
+        s.visit(start);
+        candidates.push(start, startDistance);
+        results.push(start, startDistance);
+
+        while (candidates.size() > 0) {
+            float closest = candidates.topDistance();
+            if (results.size() >= ef && closest > results.topDistance()) break;
+            int current = candidates.pop();
+
+            int block = linkBlock(current, layer);
+            IntBuffer links = layer == 0 ? layer0 : upperLinks;
+            int count = links.get(block);
+            for (int i = 0; i < count; i++) {
+                int neighbor = links.get(block + 1 + i);
+                if (!s.visit(neighbor)) continue;
+                float distance = distance(s.query, neighbor);
+                if (results.size() < ef || distance < results.topDistance()) {
+                    candidates.push(neighbor, distance);
+                    results.push(neighbor, distance);
+                    if (results.size() > ef) results.pop();
+                }
+            }
+        }
+        return results;
+    }
+
+    private int linkBlock(int node, int layer) {
+        return layer == 0 ? node * (1 + m0) : upperOffsets.get(node) + (layer - 1) * (1 + m);
+    }
+
+    private float distance(int a, int b) {
+        int stride = dimension + 1;
+        int aOffset = a * stride;
+        int bOffset = b * stride;
+        float sum = 0f;
+        for (int i = 0; i < stride; i++) {
+            float difference = vectors.get(aOffset + i) - vectors.get(bOffset + i);
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    private float distance(float[] query, int node) {
+        int offset = node * (dimension + 1);
+        float sum = 0f;
+        for (int i = 0; i <= dimension; i++) {
+            float difference = query[i] - vectors.get(offset + i);
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    private double innerProduct(float[] query, int node) {
+        int offset = node * (dimension + 1);
+        float sum = 0f;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * vectors.get(offset + i);
+        }
+        return sum;
+    }
+
+    private static double squaredNorm(float[] vectors, int offset, int dimension) {
+        double sum = 0.0;
+        for (int i = 0; i < dimension; i++) {
+            sum += (double) vectors[offset + i] * vectors[offset + i];
+        }
+        return sum;
+    }
+
+    // ---- Persistence ----
+
+    /**
+     * Writes the index as little-endian ints and floats: a header, then ids,
+     * levels, upper-layer offsets, layer 0 links, upper-layer links and vectors.
+     * The file is written through a mapping and must stay under 2 GB.
+     */
+    public void save(Path file) throws IOException {
+        long bytes = 4L * (HEADER_INTS + 3L * size + layer0.limit() + upperLinks.limit() + vectors.limit());
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Index of " + bytes + " bytes is too large for one mapping");
+        }
+        Files.deleteIfExists(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(size).putInt(dimension).putInt(m)
+               .putInt(entryPoint).putInt(maxLevel).putInt(layer0.limit()).putInt(upperLinks.limit()).putInt(0);
+            for (IntBuffer section : new IntBuffer[] { ids, levels, upperOffsets, layer0, upperLinks }) {
+                for (int i = 0; i < section.limit(); i++) {
+                    out.putInt(section.get(i));
+                }
+            }
+            for (int i = 0; i < vectors.limit(); i++) {
+                out.putFloat(vectors.get(i));
+            }
+            out.force();
+        }
+    }
+
+    /**
+     * Maps a saved index read-only. Searches read the mapping directly; the
+     * file must not change while the index is in use.
+     */
+    public static HnswIndex load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large for one mapping");
+            }
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not an HNSW index");
+            }
+            if (in.getInt(4) != FORMAT_VERSION) {
+                throw new IOException(file + " has unsupported format version " + in.getInt(4));
+            }
+            int size = in.getInt(8);
+            int dimension = in.getInt(12);
+            int m = in.getInt(16);
+            int entryPoint = in.getInt(20);
+            int maxLevel = in.getInt(24);
+            int layer0Length = in.getInt(28);
+            int upperLength = in.getInt(32);
+
+            int offset = HEADER_INTS * 4;
+            IntBuffer ids = ints(in, offset, size);
+            IntBuffer levels = ints(in, offset += 4 * size, size);
+            IntBuffer upperOffsets = ints(in, offset += 4 * size, size);
+            IntBuffer layer0 = ints(in, offset += 4 * size, layer0Length);
+            IntBuffer upperLinks = ints(in, offset += 4 * layer0Length, upperLength);
+            offset += 4 * upperLength;
+            FloatBuffer vectors = in.slice(offset, 4 * size * (dimension + 1)).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            return new HnswIndex(size, dimension, m, entryPoint, maxLevel, ids, levels, upperOffsets, layer0, upperLinks, vectors);
+        }
+    }
+
+    private static IntBuffer ints(ByteBuffer in, int offset, int count) {
+        return in.slice(offset, 4 * count).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HnswIndex{size=%d, dimension=%d, m=%d, levels=%d, ef=%d}", size, dimension, m, maxLevel + 1, defaultEf);
+    }
+
+    // ---- Per-thread scratch ----
+
+    private static class Scratch {
+        final float[] query;
+        final int[] visited;
+        int visitMark;
+        final NodeHeap candidates = new NodeHeap();
+        final NodeHeap results = new NodeHeap();
+
+        Scratch(int size, int stride) {
+            this.query = new float[stride];
+            this.visited = new int[size];
+        }
+
+        void nextVisit() {
+            if (++visitMark == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                visitMark = 1;
+            }
+        }
+
+        // True the first time a node is seen in the current search
+        boolean visit(int node) {
+            if (visited[node] == visitMark) return false;
+            visited[node] = visitMark;
+            return true;
+        }
+    }
+
+    /**
+     * Binary heap of (node, distance) over parallel arrays, either nearest on
+     * top or farthest on top.
+     */
+    private static class NodeHeap {
+        private int[] nodes = new int[64];
+        private float[] distances = new float[64];
+        private int size;
+        private boolean farthestFirst;
+
+        NodeHeap reset(boolean farthestFirst) {
+            this.farthestFirst = farthestFirst;
+            this.size = 0;
+            return this;
+        }
+
+        int size() { return size; }
+        float topDistance() { return distances[0]; }
+
+        void push(int node, float distance) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!above(distance, distances[parent])) break;
+                nodes[i] = nodes[parent];
+                distances[i] = distances[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastDistance = distances[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && above(distances[child + 1], distances[child])) child++;
+                if (!above(distances[child], lastDistance)) break;
+                nodes[i] = nodes[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            distances[i] = lastDistance;
+            return top;
+        }
+
+        // Nodes nearest first; empties the heap
+        int[] sortedAscending() {
+            int[] sorted = new int[size];
+            if (farthestFirst) {
+                for (int i = sorted.length - 1; i >= 0; i--) sorted[i] = pop();
+            } else {
+                for (int i = 0; i < sorted.length; i++) sorted[i] = pop();
+            }
+            return sorted;
+        }
+
+        private boolean above(float a, float b) {
+            return farthestFirst ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+// ItemSimilarityModel.java
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Item-item cosine similarity model over a {@link RatingMatrix}. For every movie
+ * it keeps the most similar movies in two parallel arrays, so a lookup costs
+ * O(maxNeighbors) no matter how many users there are. Neighbor lists are
+ * immutable and swapped in atomically, so neighbor lookups never wait on
+ * rating updates.
+ */
+public class ItemSimilarityModel {
+    public static final int DEFAULT_MAX_NEIGHBORS = 20;
+
+    private final RatingMatrix ratings;
+    private final int maxNeighbors;
+    private final Map<Integer, Neighbors> neighbors;
+    private final ThreadLocal<Accumulator> accumulators = ThreadLocal.withInitial(Accumulator::new);
+
+    public ItemSimilarityModel(RatingMatrix ratings) {
+        this(ratings, DEFAULT_MAX_NEIGHBORS);
+    }
+
+    public ItemSimilarityModel(RatingMatrix ratings, int maxNeighbors) {
+        if (maxNeighbors <= 0) {
+            throw new IllegalArgumentException("maxNeighbors must be positive");
+        }
+        this.ratings = ratings;
+        this.maxNeighbors = maxNeighbors;
+        this.neighbors = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Recomputes every neighbor list from the rating matrix, one movie per task
+     * on the common ForkJoin pool. Call this once after bulk-loading the matrix.
+     */
+    public synchronized void rebuild() {
+        Map<Integer, Neighbors> rebuilt = new ConcurrentHashMap<>();
+        IntStream.range(0, ratings.movieIdBound())
+                .parallel()
+                .filter(movieId -> ratings.columnSize(movieId) > 0)
+                .forEach(movieId -> rebuilt.put(movieId, selectTop(accumulateCoRatedScores(movieId))));
+
+        neighbors.putAll(rebuilt);
+        neighbors.keySet().retainAll(rebuilt.keySet());
+    }
+
+    /**
+     * Patches the neighbor lists after ratings of these movies changed in the
+     * matrix, once per distinct movie however many of its ratings changed: the
+     * movie's own list and one entry in the list of every movie that shares a
+     * rater with it.
+     * Holds the matrix's monitor while reading it, so writers that lock the
+     * matrix the same way may run on other threads.
+     */
+    public synchronized void refreshMovies(int[] movieIds) {
+        synchronized (ratings) {
+            for (int movieId : Arrays.stream(movieIds).distinct().toArray()) {
+                refreshMovie(movieId);
+            }
+        }
+    }
+
+    // Rescans the movie's own list and patches it into the list of every co-rated movie
+    private void refreshMovie(int movieId) {
+        Accumulator scores = accumulateCoRatedScores(movieId);
+        neighbors.put(movieId, selectTop(scores));
+
+        // Copy out first: a patch that needs a rescan reuses this thread's accumulator
+        int[] coRatedIds = Arrays.copyOf(scores.touched, scores.count);
+        double[] similarities = new double[coRatedIds.length];
+        for (int i = 0; i < coRatedIds.length; i++) {
+            similarities[i] = scores.sums[coRatedIds[i]];
+        }
+
+        for (int i = 0; i < coRatedIds.length; i++) {
+            patchNeighbor(coRatedIds[i], movieId, similarities[i]);
+        }
+    }
+
+    public Neighbors getNeighbors(int movieId) {
+        return neighbors.getOrDefault(movieId, Neighbors.EMPTY);
+    }
+
+    private void patchNeighbor(int ownerId, int movieId, double similarity) {
+        Neighbors current = getNeighbors(ownerId);
+        boolean full = current.size() >= maxNeighbors;
+        float weakest = full ? current.similarity(current.size() - 1) : 0f;
+
+        if (current.indexOf(movieId) >= 0) {
+            if (full && similarity < weakest) {
+                // The movie drops below the cut-off, and the runner-up is only known after a rescan
+                neighbors.put(ownerId, selectTop(accumulateCoRatedScores(ownerId)));
+                return;
+            }
+        } else if (full && similarity <= weakest) {
+            return;
+        }
+
+        neighbors.put(ownerId, current.with(movieId, (float) similarity, maxNeighbors));
+    }
+
+    // Cosine between movieId and every movie sharing a rater with it, left in this thread's accumulator
+    private Accumulator accumulateCoRatedScores(int movieId) {
+        Accumulator scores = accumulators.get();
+        scores.reset(ratings.movieIdBound());
+
+        int[] raters = ratings.columnUserIds(movieId);
+        float[] raterRatings = ratings.columnRatings(movieId);
+        for (int i = 0; i < ratings.columnSize(movieId); i++) {
+            int userId = raters[i];
+            double rating = raterRatings[i];
+            int[] rated = ratings.rowMovieIds(userId);
+            float[] ratedRatings = ratings.rowRatings(userId);
+            for (int j = 0; j < ratings.rowSize(userId); j++) {
+                if (rated[j] != movieId) {
+                    scores.add(rated[j], rating * ratedRatings[j]);
+                }
+            }
+        }
+
+        double norm = ratings.columnNorm(movieId);
+        for (int i = 0; i < scores.count; i++) {
+            int otherId = scores.touched[i];
+            scores.sums[otherId] /= norm * ratings.columnNorm(otherId);
+        }
+        return scores;
+    }
+
+    private Neighbors selectTop(Accumulator scores) {
+        TopKSelector top = new TopKSelector(maxNeighbors);
+        for (int i = 0; i < scores.count; i++) {
+            int otherId = scores.touched[i];
+            if (scores.sums[otherId] > 0) {
+                top.offer(otherId, scores.sums[otherId]);
+            }
+        }
+        top.sort();
+
+        int[] movieIds = new int[top.size()];
+        float[] similarities = new float[top.size()];
+        for (int rank = 0; rank < top.size(); rank++) {
+            movieIds[rank] = top.id(rank);
+            similarities[rank] = (float) top.score(rank);
+        }
+        return new Neighbors(movieIds, similarities);
+    }
+
+    /**
+     * Most similar movies for one movie, best first.
+     */
+    public static final class Neighbors {
+        static final Neighbors EMPTY = new Neighbors(new int[0], new float[0]);
+
+        private final int[] movieIds;
+        private final float[] similarities;
+
+        private Neighbors(int[] movieIds, float[] similarities) {
+            this.movieIds = movieIds;
+            this.similarities = similarities;
+        }
+
+        public int size() { return movieIds.length; }
+        public int movieId(int index) { return movieIds[index]; }
+        public float similarity(int index) { return similarities[index]; }
+
+        int indexOf(int movieId) {
+            for (int i = 0; i < movieIds.length; i++) {
+                if (movieIds[i] == movieId) return i;
+            }
+            return -1;
+        }
+
+        // Copy with movieId (re)inserted at its ranked position, truncated to limit
+        Neighbors with(int movieId, float similarity, int limit) {
+            int[] ids = new int[Math.min(movieIds.length + 1, limit)];
+            float[] sims = new float[ids.length];
+            int size = 0;
+            boolean inserted = false;
+
+            for (int i = 0; i < movieIds.length && size < ids.length; i++) {
+                if (movieIds[i] == movieId) continue;
+                if (!inserted && similarity > similarities[i]) {
+                    ids[size] = movieId;
+                    sims[size++] = similarity;
+                    inserted = true;
+                    if (size == ids.length) break;
+                }
+                ids[size] = movieIds[i];
+                sims[size++] = similarities[i];
+            }
+            if (!inserted && size < ids.length) {
+                ids[size] = movieId;
+                sims[size++] = similarity;
+            }
+
+            return new Neighbors(Arrays.copyOf(ids, size), Arrays.copyOf(sims, size));
+        }
+    }
+
+    // Dense per-thread score buffer indexed by movie id, with the touched ids listed for cheap resets
+    private static class Accumulator {
+        double[] sums = new double[0];
+        boolean[] seen = new boolean[0];
+        int[] touched = new int[0];
+        int count;
+
+        void reset(int movieIdBound) {
+            for (int i = 0; i < count; i++) {
+                sums[touched[i]] = 0.0;
+                seen[touched[i]] = false;
+            }
+            count = 0;
+            if (sums.length < movieIdBound) {
+                sums = new double[movieIdBound];
+                seen = new boolean[movieIdBound];
+                touched = new int[movieIdBound];
+            }
+        }
+
+        void add(int movieId, double value) {
+            if (!seen[movieId]) {
+                seen[movieId] = true;
+                touched[count++] = movieId;
+            }
+            sums[movieId] += value;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+// Movie.java
+import java.util.*;
+
+class Movie {
+    private int id;
+    private String title;
+    private String genre;
+    private String director;
+    private int year;
+    private double rating;
+    private String description;
+    
+    public Movie(int id, String title, String genre, String director, int year, double rating, String description) {
+        this.id = id;
+        this.title = title;
+        this.genre = genre;
+        this.director = director;
+        this.year = year;
+        this.rating = rating;
+        this.description = description;
+    }
+    
+    // Getters and Setters
+    public int getId() { return id; }
+    public String getTitle() { return title; }
+    public String getGenre() { return genre; }
+    public String getDirector() { return director; }
+    public int getYear() { return year; }
+    public double getRating() { return rating; }
+    public String getDescription() { return description; }
+    
+    @Override
+    public String toString() {
+        return String.format("Movie{id=%d, title='%s', genre='%s', director='%s', year=%d, rating=%.1f}", 
+                           id, title, genre, director, year, rating);
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Movie movie = (Movie) obj;
+        return id == movie.id;
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
@@ -0,0 +1,189 @@
+// MovieDatabase.java
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+class MovieDatabase {
+    // Best rated first; equal ratings by id, matching TopKSelector
+    static final Comparator<Movie> BY_RATING_DESC =
+            Comparator.comparingDouble(Movie::getRating).reversed().thenComparingInt(Movie::getId);
+    
+    private Map<Integer, Movie> movies;
+    // Secondary indexes keyed by lower-cased name. Each value is an unmodifiable list
+    // sorted by BY_RATING_DESC and replaced wholesale on change, so readers can share it.
+    private Map<String, List<Movie>> genreIndex;
+    private Map<String, List<Movie>> directorIndex;
+    private Map<String, String> genreNames; // lower-cased -> name as first added
+    // Range indexes: every movie in BY_RATING_DESC order, and per-year lists in the same order
+    private NavigableSet<Movie> ratingIndex;
+    private NavigableMap<Integer, List<Movie>> yearIndex;
+    private final List<Consumer<Movie>> movieListeners = new CopyOnWriteArrayList<>();
+    
+    public MovieDatabase() {
+        this(true);
+    }
+    
+    // Bulk loaders start from an empty catalog
+    MovieDatabase(boolean withSampleMovies) {
+        this.movies = new ConcurrentHashMap<>();
+        this.genreIndex = new ConcurrentHashMap<>();
+        this.directorIndex = new ConcurrentHashMap<>();
+        this.genreNames = new ConcurrentHashMap<>();
+        this.ratingIndex = new ConcurrentSkipListSet<>(BY_RATING_DESC);
+        this.yearIndex = new ConcurrentSkipListMap<>();
+        if (withSampleMovies) {
+            initializeMovies();
+        }
+    }
+    
+    private void initializeMovies() {
+        // Sample movie data
+        addMovie(new Movie(1, "The Shawshank Redemption", "Drama", "Frank Darabont", 1994, 9.3, "Two imprisoned men bond over a number of years"));
+        addMovie(new Movie(2, "The Godfather", "Crime", "Francis Ford Coppola", 1972, 9.2, "The aging patriarch of an organized crime dynasty"));
+        addMovie(new Movie(3, "The Dark Knight", "Action", "Christopher Nolan", 2008, 9.0, "Batman faces the Joker in Gotham City"));
+        addMovie(new Movie(4, "Pulp Fiction", "Crime", "Quentin Tarantino", 1994, 8.9, "The lives of two mob hitmen intertwine"));
+        addMovie(new Movie(5, "Forrest Gump", "Drama", "Robert Zemeckis", 1994, 8.8, "The presidencies of Kennedy and Johnson through the eyes of Alabama man"));
+        addMovie(new Movie(6, "Inception", "Sci-Fi", "Christopher Nolan", 2010, 8.8, "A thief who steals corporate secrets through dream-sharing technology"));
+        addMovie(new Movie(7, "The Matrix", "Sci-Fi", "The Wachowskis", 1999, 8.7, "A computer hacker learns reality is a simulation"));
+        addMovie(new Movie(8, "Goodfellas", "Crime", "Martin Scorsese", 1990, 8.7, "The story of Henry Hill and his life in the mob"));
+        addMovie(new Movie(9, "The Lord of the Rings: The Return of the King", "Fantasy", "Peter Jackson", 2003, 8.9, "Gandalf and Aragorn lead the World of Men against Sauron's army"));
+        addMovie(new Movie(10, "Fight Club", "Drama", "David Fincher", 1999, 8.8, "An insomniac office worker forms an underground fight club"));
+        addMovie(new Movie(11, "Star Wars: Episode IV - A New Hope", "Sci-Fi", "George Lucas", 1977, 8.6, "Luke Skywalker joins forces with rebels to save Princess Leia"));
+        addMovie(new Movie(12, "The Silence of the Lambs", "Thriller", "Jonathan Demme", 1991, 8.6, "A young FBI cadet must confide in Dr. Hannibal Lecter"));
+        addMovie(new Movie(13, "Titanic", "Romance", "James Cameron", 1997, 7.8, "A seventeen-year-old aristocrat falls in love with a poor artist"));
+        addMovie(new Movie(14, "Casablanca", "Romance", "Michael Curtiz", 1942, 8.5, "A cynical American expatriate struggles to decide whether to help his former lover"));
+        addMovie(new Movie(15, "The Avengers", "Action", "Joss Whedon", 2012, 8.0, "Earth's mightiest heroes must come together to stop an alien invasion"));
+    }
+    
+    public synchronized void addMovie(Movie movie) {
+        Movie previous = movies.put(movie.getId(), movie);
+        if (previous != null) {
+            removeFromIndex(genreIndex, normalize(previous.getGenre()), previous);
+            removeFromIndex(directorIndex, normalize(previous.getDirector()), previous);
+            removeFromIndex(yearIndex, previous.getYear(), previous);
+            ratingIndex.remove(previous);
+        }
+        
+        addToIndex(genreIndex, normalize(movie.getGenre()), movie);
+        addToIndex(directorIndex, normalize(movie.getDirector()), movie);
+        addToIndex(yearIndex, movie.getYear(), movie);
+        ratingIndex.add(movie);
+        if (movie.getGenre() != null) {
+            genreNames.putIfAbsent(normalize(movie.getGenre()), movie.getGenre());
+        }
+        
+        for (Consumer<Movie> listener : movieListeners) {
+            listener.accept(movie);
+        }
+    }
+    
+    // Called after every addMovie, including replacements of an existing id
+    void addMovieListener(Consumer<Movie> listener) {
+        movieListeners.add(listener);
+    }
+    
+    private static <K> void addToIndex(Map<K, List<Movie>> index, K key, Movie movie) {
+        if (key == null) return;
+        List<Movie> updated = new ArrayList<>(index.getOrDefault(key, List.of()));
+        int position = Collections.binarySearch(updated, movie, BY_RATING_DESC);
+        updated.add(position >= 0 ? position : -position - 1, movie);
+        index.put(key, Collections.unmodifiableList(updated));
+    }
+    
+    private static <K> void removeFromIndex(Map<K, List<Movie>> index, K key, Movie movie) {
+        if (key == null) return;
+        List<Movie> current = index.get(key);
+        if (current == null) return;
+        List<Movie> updated = new ArrayList<>(current);
+        updated.removeIf(indexed -> indexed.getId() == movie.getId());
+        if (updated.isEmpty()) {
+            index.remove(key);
+        } else {
+            index.put(key, Collections.unmodifiableList(updated));
+        }
+    }
+    
+    private static String normalize(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+    
+    public Movie getMovie(int id) {
+        return movies.get(id);
+    }
+    
+    public List<Movie> getAllMovies() {
+        return new ArrayList<>(movies.values());
+    }
+    
+    // Read-only, best rated first
+    public List<Movie> getMoviesByGenre(String genre) {
+        return genre == null ? List.of() : genreIndex.getOrDefault(normalize(genre), List.of());
+    }
+    
+    // Read-only, best rated first
+    public List<Movie> getMoviesByDirector(String director) {
+        return director == null ? List.of() : directorIndex.getOrDefault(normalize(director), List.of());
+    }
+    
+    // Ordered by year, best rated first within a year
+    public List<Movie> getMoviesByYearRange(int startYear, int endYear) {
+        List<Movie> result = new ArrayList<>();
+        if (startYear > endYear) return result;
+        for (List<Movie> yearMovies : yearIndex.subMap(startYear, true, endYear, true).values()) {
+            result.addAll(yearMovies);
+        }
+        return result;
+    }
+    
+    /**
+     * Best rated movies released in the range, found by merging the per-year
+     * lists (each already best rated first) rather than sorting the range.
+     */
+    public List<Movie> getMoviesByYearRange(int startYear, int endYear, int limit) {
+        List<Movie> result = new ArrayList<>();
+        if (startYear > endYear || limit <= 0) return result;
+        
+        List<List<Movie>> years = new ArrayList<>(yearIndex.subMap(startYear, true, endYear, true).values());
+        // Cursor = {year list index, position in that list}, ordered by the movie it points at
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(1, years.size()),
+                (c1, c2) -> BY_RATING_DESC.compare(years.get(c1[0]).get(c1[1]), years.get(c2[0]).get(c2[1])));
+        for (int i = 0; i < years.size(); i++) {
+            cursors.offer(new int[] {i, 0});
+        }
+        
+        while (!cursors.isEmpty() && result.size() < limit) {
+            int[] cursor = cursors.poll();
+            List<Movie> yearMovies = years.get(cursor[0]);
+            result.add(yearMovies.get(cursor[1]));
+            if (++cursor[1] < yearMovies.size()) {
+                cursors.offer(cursor);
+            }
+        }
+        return result;
+    }
+    
+    public List<Movie> getHighRatedMovies(double minRating) {
+        return getHighRatedMovies(minRating, Integer.MAX_VALUE);
+    }
+    
+    // The rating index is best rated first, so matches are a prefix of it
+    public List<Movie> getHighRatedMovies(double minRating, int limit) {
+        List<Movie> result = new ArrayList<>();
+        for (Movie movie : ratingIndex) {
+            if (movie.getRating() < minRating || result.size() >= limit) break;
+            result.add(movie);
+        }
+        return result;
+    }
+    
+    public List<String> getAllGenres() {
+        List<String> genres = new ArrayList<>();
+        for (String normalized : genreIndex.keySet()) {
+            genres.add(genreNames.get(normalized));
+        }
+        return genres;
+    }
+}
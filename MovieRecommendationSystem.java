@@ -1,358 +1,6 @@
 // Save this as MovieRecommendationSystem.java
 import java.util.*;
 
-import java.util.stream.Collectors;
-
-class Movie {
-    private int id;
-    private String title;
-    private String genre;
-    private String director;
-    private int year;
-    private double rating;
-    private String description;
-    
-    public Movie(int id, String title, String genre, String director, int year, double rating, String description) {
-        this.id = id;
-        this.title = title;
-        this.genre = genre;
-        this.director = director;
-        this.year = year;
-        this.rating = rating;
-        this.description = description;
-    }
-    
-    // Getters and Setters
-    public int getId() { return id; }
-    public String getTitle() { return title; }
-    public String getGenre() { return genre; }
-    public String getDirector() { return director; }
-    public int getYear() { return year; }
-    public double getRating() { return rating; }
-    public String getDescription() { return description; }
-    
-    @Override
-    public String toString() {
-        return String.format("Movie{id=%d, title='%s', genre='%s', director='%s', year=%d, rating=%.1f}", 
-                           id, title, genre, director, year, rating);
-    }
-    
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj) return true;
-        if (obj == null || getClass() != obj.getClass()) return false;
-        Movie movie = (Movie) obj;
-        return id == movie.id;
-    }
-    
-    @Override
-    public int hashCode() {
-        return Objects.hash(id);
-    }
-}
-
-class User {
-    private int userId;
-    private String name;
-    private List<String> favoriteGenres;
-    private List<Integer> watchedMovies;
-    private Map<Integer, Double> movieRatings;
-    
-    public User(int userId, String name) {
-        this.userId = userId;
-        this.name = name;
-        this.favoriteGenres = new ArrayList<>();
-        this.watchedMovies = new ArrayList<>();
-        this.movieRatings = new HashMap<>();
-    }
-    
-    public void addFavoriteGenre(String genre) {
-        if (!favoriteGenres.contains(genre)) {
-            favoriteGenres.add(genre);
-        }
-    }
-    
-    public void addWatchedMovie(int movieId) {
-        if (!watchedMovies.contains(movieId)) {
-            watchedMovies.add(movieId);
-        }
-    }
-    
-    public void rateMovie(int movieId, double rating) {
-        if (rating >= 1.0 && rating <= 5.0) {
-            movieRatings.put(movieId, rating);
-            addWatchedMovie(movieId);
-        }
-    }
-    
-    // Getters
-    public int getUserId() { return userId; }
-    public String getName() { return name; }
-    public List<String> getFavoriteGenres() { return new ArrayList<>(favoriteGenres); }
-    public List<Integer> getWatchedMovies() { return new ArrayList<>(watchedMovies); }
-    public Map<Integer, Double> getMovieRatings() { return new HashMap<>(movieRatings); }
-    
-    public double getAverageRating() {
-        if (movieRatings.isEmpty()) return 0.0;
-        return movieRatings.values().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-    }
-    
-    @Override
-    public String toString() {
-        return String.format("User{userId=%d, name='%s', favoriteGenres=%s, watchedMovies=%d}", 
-                           userId, name, favoriteGenres, watchedMovies.size());
-    }
-}
-
-class MovieDatabase {
-    private Map<Integer, Movie> movies;
-    private Map<String, List<Movie>> genreIndex;
-    
-    public MovieDatabase() {
-        this.movies = new HashMap<>();
-        this.genreIndex = new HashMap<>();
-        initializeMovies();
-    }
-    
-    private void initializeMovies() {
-        // Sample movie data
-        addMovie(new Movie(1, "The Shawshank Redemption", "Drama", "Frank Darabont", 1994, 9.3, "Two imprisoned men bond over a number of years"));
-        addMovie(new Movie(2, "The Godfather", "Crime", "Francis Ford Coppola", 1972, 9.2, "The aging patriarch of an organized crime dynasty"));
-        addMovie(new Movie(3, "The Dark Knight", "Action", "Christopher Nolan", 2008, 9.0, "Batman faces the Joker in Gotham City"));
-        addMovie(new Movie(4, "Pulp Fiction", "Crime", "Quentin Tarantino", 1994, 8.9, "The lives of two mob hitmen intertwine"));
-        addMovie(new Movie(5, "Forrest Gump", "Drama", "Robert Zemeckis", 1994, 8.8, "The presidencies of Kennedy and Johnson through the eyes of Alabama man"));
-        addMovie(new Movie(6, "Inception", "Sci-Fi", "Christopher Nolan", 2010, 8.8, "A thief who steals corporate secrets through dream-sharing technology"));
-        addMovie(new Movie(7, "The Matrix", "Sci-Fi", "The Wachowskis", 1999, 8.7, "A computer hacker learns reality is a simulation"));
-        addMovie(new Movie(8, "Goodfellas", "Crime", "Martin Scorsese", 1990, 8.7, "The story of Henry Hill and his life in the mob"));
-        addMovie(new Movie(9, "The Lord of the Rings: The Return of the King", "Fantasy", "Peter Jackson", 2003, 8.9, "Gandalf and Aragorn lead the World of Men against Sauron's army"));
-        addMovie(new Movie(10, "Fight Club", "Drama", "David Fincher", 1999, 8.8, "An insomniac office worker forms an underground fight club"));
-        addMovie(new Movie(11, "Star Wars: Episode IV - A New Hope", "Sci-Fi", "George Lucas", 1977, 8.6, "Luke Skywalker joins forces with rebels to save Princess Leia"));
-        addMovie(new Movie(12, "The Silence of the Lambs", "Thriller", "Jonathan Demme", 1991, 8.6, "A young FBI cadet must confide in Dr. Hannibal Lecter"));
-        addMovie(new Movie(13, "Titanic", "Romance", "James Cameron", 1997, 7.8, "A seventeen-year-old aristocrat falls in love with a poor artist"));
-        addMovie(new Movie(14, "Casablanca", "Romance", "Michael Curtiz", 1942, 8.5, "A cynical American expatriate struggles to decide whether to help his former lover"));
-        addMovie(new Movie(15, "The Avengers", "Action", "Joss Whedon", 2012, 8.0, "Earth's mightiest heroes must come together to stop an alien invasion"));
-    }
-    
-    public void addMovie(Movie movie) {
-        movies.put(movie.getId(), movie);
-        genreIndex.computeIfAbsent(movie.getGenre(), k -> new ArrayList<>()).add(movie);
-    }
-    
-    public Movie getMovie(int id) {
-        return movies.get(id);
-    }
-    
-    public List<Movie> getAllMovies() {
-        return new ArrayList<>(movies.values());
-    }
-    
-    public List<Movie> getMoviesByGenre(String genre) {
-        return genreIndex.getOrDefault(genre, new ArrayList<>());
-    }
-    
-    public List<Movie> getMoviesByDirector(String director) {
-        return movies.values().stream()
-                .filter(movie -> movie.getDirector().equalsIgnoreCase(director))
-                .collect(Collectors.toList());
-    }
-    
-    public List<Movie> getMoviesByYearRange(int startYear, int endYear) {
-        return movies.values().stream()
-                .filter(movie -> movie.getYear() >= startYear && movie.getYear() <= endYear)
-                .collect(Collectors.toList());
-    }
-    
-    public List<Movie> getHighRatedMovies(double minRating) {
-        return movies.values().stream()
-                .filter(movie -> movie.getRating() >= minRating)
-                .sorted((m1, m2) -> Double.compare(m2.getRating(), m1.getRating()))
-                .collect(Collectors.toList());
-    }
-    
-    public List<String> getAllGenres() {
-        return new ArrayList<>(genreIndex.keySet());
-    }
-}
-
-class RecommendationEngine {
-    private MovieDatabase movieDatabase;
-    private Map<Integer, User> users;
-    
-    public RecommendationEngine(MovieDatabase movieDatabase) {
-        this.movieDatabase = movieDatabase;
-        this.users = new HashMap<>();
-    }
-    
-    public void addUser(User user) {
-        users.put(user.getUserId(), user);
-    }
-    
-    public List<Movie> getRecommendations(int userId, int numRecommendations) {
-        User user = users.get(userId);
-        if (user == null) {
-            return new ArrayList<>();
-        }
-        
-        Set<Movie> recommendations = new HashSet<>();
-        
-        // Content-based filtering
-        recommendations.addAll(getContentBasedRecommendations(user, numRecommendations));
-        
-        // Collaborative filtering
-        recommendations.addAll(getCollaborativeRecommendations(user, numRecommendations));
-        
-        // Popularity-based recommendations
-        recommendations.addAll(getPopularityBasedRecommendations(user, numRecommendations));
-        
-        // Remove already watched movies
-        recommendations.removeIf(movie -> user.getWatchedMovies().contains(movie.getId()));
-        
-        // Sort by rating and return top recommendations
-        return recommendations.stream()
-                .sorted((m1, m2) -> Double.compare(m2.getRating(), m1.getRating()))
-                .limit(numRecommendations)
-                .collect(Collectors.toList());
-    }
-    
-    private List<Movie> getContentBasedRecommendations(User user, int numRecommendations) {
-        List<Movie> recommendations = new ArrayList<>();
-        
-        // Recommend based on favorite genres
-        for (String genre : user.getFavoriteGenres()) {
-            List<Movie> genreMovies = movieDatabase.getMoviesByGenre(genre);
-            genreMovies.removeIf(movie -> user.getWatchedMovies().contains(movie.getId()));
-            
-            genreMovies.stream()
-                    .sorted((m1, m2) -> Double.compare(m2.getRating(), m1.getRating()))
-                    .limit(numRecommendations / Math.max(1, user.getFavoriteGenres().size()))
-                    .forEach(recommendations::add);
-        }
-        
-        // Recommend based on directors of highly rated movies
-        Map<Integer, Double> userRatings = user.getMovieRatings();
-        Set<String> preferredDirectors = new HashSet<>();
-        
-        for (Map.Entry<Integer, Double> entry : userRatings.entrySet()) {
-            if (entry.getValue() >= 4.0) {
-                Movie movie = movieDatabase.getMovie(entry.getKey());
-                if (movie != null) {
-                    preferredDirectors.add(movie.getDirector());
-                }
-            }
-        }
-        
-        for (String director : preferredDirectors) {
-            List<Movie> directorMovies = movieDatabase.getMoviesByDirector(director);
-            directorMovies.removeIf(movie -> user.getWatchedMovies().contains(movie.getId()));
-            
-            directorMovies.stream()
-                    .sorted((m1, m2) -> Double.compare(m2.getRating(), m1.getRating()))
-                    .limit(2)
-                    .forEach(recommendations::add);
-        }
-        
-        return recommendations;
-    }
-    
-    private List<Movie> getCollaborativeRecommendations(User user, int numRecommendations) {
-        List<Movie> recommendations = new ArrayList<>();
-        
-        // Find similar users based on movie ratings
-        List<User> similarUsers = findSimilarUsers(user, 5);
-        
-        for (User similarUser : similarUsers) {
-            Map<Integer, Double> similarUserRatings = similarUser.getMovieRatings();
-            
-            for (Map.Entry<Integer, Double> entry : similarUserRatings.entrySet()) {
-                if (entry.getValue() >= 4.0 && !user.getWatchedMovies().contains(entry.getKey())) {
-                    Movie movie = movieDatabase.getMovie(entry.getKey());
-                    if (movie != null) {
-                        recommendations.add(movie);
-                    }
-                }
-            }
-        }
-        
-        return recommendations.stream()
-                .distinct()
-                .sorted((m1, m2) -> Double.compare(m2.getRating(), m1.getRating()))
-                .limit(numRecommendations)
-                .collect(Collectors.toList());
-    }
-    
-    private List<Movie> getPopularityBasedRecommendations(User user, int numRecommendations) {
-        return movieDatabase.getHighRatedMovies(8.0).stream()
-                .filter(movie -> !user.getWatchedMovies().contains(movie.getId()))
-                .limit(numRecommendations)
-                .collect(Collectors.toList());
-    }
-    
-    private List<User> findSimilarUsers(User user, int numSimilar) {
-        List<UserSimilarity> similarities = new ArrayList<>();
-        
-        for (User otherUser : users.values()) {
-            if (otherUser.getUserId() != user.getUserId()) {
-                double similarity = calculateUserSimilarity(user, otherUser);
-                if (similarity > 0) {
-                    similarities.add(new UserSimilarity(otherUser, similarity));
-                }
-            }
-        }
-        
-        return similarities.stream()
-                .sorted((s1, s2) -> Double.compare(s2.similarity, s1.similarity))
-                .limit(numSimilar)
-                .map(s -> s.user)
-                .collect(Collectors.toList());
-    }
-    
-    private double calculateUserSimilarity(User user1, User user2) {
-        Map<Integer, Double> ratings1 = user1.getMovieRatings();
-        Map<Integer, Double> ratings2 = user2.getMovieRatings();
-        
-        Set<Integer> commonMovies = new HashSet<>(ratings1.keySet());
-        commonMovies.retainAll(ratings2.keySet());
-        
-        if (commonMovies.isEmpty()) return 0.0;
-        
-        // Calculate cosine similarity
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
-        
-        for (Integer movieId : commonMovies) {
-            double rating1 = ratings1.get(movieId);
-            double rating2 = ratings2.get(movieId);
-            
-            dotProduct += rating1 * rating2;
-            norm1 += rating1 * rating1;
-            norm2 += rating2 * rating2;
-        }
-        
-        if (norm1 == 0.0 || norm2 == 0.0) return 0.0;
-        
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
-    }
-    
-    private static class UserSimilarity {
-        User user;
-        double similarity;
-        
-        UserSimilarity(User user, double similarity) {
-            this.user = user;
-            this.similarity = similarity;
-        }
-    }
-    
-    public User getUser(int userId) {
-        return users.get(userId);
-    }
-    
-    public Collection<User> getAllUsers() {
-        return users.values();
-    }
-}
-
 public class MovieRecommendationSystem {
     private MovieDatabase movieDatabase;
     private RecommendationEngine recommendationEngine;
@@ -556,7 +204,7 @@ public class MovieRecommendationSystem {
         System.out.println("Movies Watched: " + user.getWatchedMovies().size());
         System.out.println("Average Rating: " + String.format("%.1f", user.getAverageRating()));
         
-        if (!user.getMovieRatings().isEmpty()) {
+        if (user.getRatingCount() > 0) {
             System.out.println("\nRated Movies:");
             for (Map.Entry<Integer, Double> entry : user.getMovieRatings().entrySet()) {
                 Movie movie = movieDatabase.getMovie(entry.getKey());
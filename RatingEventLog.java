@@ -0,0 +1,157 @@
+// RatingEventLog.java
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process queue of rating events with a single background writer. Callers
+ * publish and return at once; the writer drains whatever has queued up and
+ * hands it to the applier as one batch, so a burst of ratings costs one
+ * update of the derived data instead of one per rating. Only the writer
+ * thread runs the applier, so appliers need no locking against each other.
+ *
+ * Every applied batch bumps the version. Lag is visible as the number of
+ * events published but not yet applied and the age of the oldest of them.
+ */
+public class RatingEventLog {
+    private static final int MAX_BATCH = 1024;
+
+    /**
+     * Applies one batch of events, in publish order. Runs on the writer thread.
+     */
+    public interface Applier {
+        void apply(List<RatingEvent> batch);
+    }
+
+    public static final class RatingEvent {
+        private final long sequence;
+        private final int userId;
+        private final int movieId;
+        private final double rating;
+        private final long publishedNanos;
+
+        private RatingEvent(long sequence, int userId, int movieId, double rating, long publishedNanos) {
+            this.sequence = sequence;
+            this.userId = userId;
+            this.movieId = movieId;
+            this.rating = rating;
+            this.publishedNanos = publishedNanos;
+        }
+
+        public long getSequence() { return sequence; }
+        public int getUserId() { return userId; }
+        public int getMovieId() { return movieId; }
+        public double getRating() { return rating; }
+    }
+
+    private final String name;
+    private final Applier applier;
+    private final LinkedBlockingQueue<RatingEvent> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong published = new AtomicLong();
+    private final Object appliedMonitor = new Object();
+    private volatile long applied;        // sequence of the last applied event
+    private volatile long version;        // batches applied
+    private volatile long inFlightSince;  // publish time of the oldest event in the batch being applied, 0 when idle
+    private volatile long failedBatches;
+    private Thread writer;
+
+    public RatingEventLog(String name, Applier applier) {
+        this.name = name;
+        this.applier = applier;
+    }
+
+    /**
+     * Queues a rating and returns its sequence number, for awaitApplied.
+     */
+    public long publish(int userId, int movieId, double rating) {
+        startWriter();
+        // Sequence and enqueue under one lock, so the queue stays in sequence order
+        synchronized (queue) {
+            long sequence = published.incrementAndGet();
+            queue.add(new RatingEvent(sequence, userId, movieId, rating, System.nanoTime()));
+            return sequence;
+        }
+    }
+
+    /**
+     * Waits until the event with this sequence number, and all before it, is
+     * applied. False on timeout.
+     */
+    public boolean awaitApplied(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (appliedMonitor) {
+            while (applied < sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(appliedMonitor, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits until everything published so far is applied. False on timeout.
+     */
+    public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        return awaitApplied(published.get(), timeoutMillis);
+    }
+
+    public long getPendingCount() {
+        return published.get() - applied;
+    }
+
+    /**
+     * Age of the oldest event not yet applied, or 0 when none is pending.
+     */
+    public long getOldestPendingAgeMillis() {
+        long oldest = inFlightSince;
+        if (oldest == 0) {
+            RatingEvent head = queue.peek();
+            if (head == null) return 0;
+            oldest = head.publishedNanos;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest));
+    }
+
+    public long getPublishedCount() { return published.get(); }
+    public long getAppliedCount() { return applied; }
+    public long getVersion() { return version; }
+    public long getFailedBatchCount() { return failedBatches; }
+
+    // The writer starts with the first event, so logs that never see one cost no thread
+    private synchronized void startWriter() {
+        if (writer != null) return;
+        writer = new Thread(this::drain, name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void drain() {
+        List<RatingEvent> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            inFlightSince = batch.get(0).publishedNanos;
+            try {
+                applier.apply(batch);
+            } catch (RuntimeException e) {
+                // Later batches still run; the data these events touch catches up at the next rebuild
+                failedBatches++;
+                System.err.println(name + ": failed to apply " + batch.size() + " rating events: " + e);
+            }
+            version++;
+            inFlightSince = 0;
+            synchronized (appliedMonitor) {
+                applied = batch.get(batch.size() - 1).getSequence();
+                appliedMonitor.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+// RatingMatrix.java
+import java.util.Arrays;
+
+/**
+ * Sparse user x movie rating store in compressed-row form. Each user row holds
+ * its movie ids sorted ascending in an int[] with the matching ratings in a
+ * float[]; a transposed copy does the same per movie. Rows and columns are
+ * indexed directly by id, so reads are array accesses and binary searches
+ * with no boxing or copying. Every row also caches the sum of its ratings and
+ * every column the sum of their squares, so row means and column norms are
+ * O(1).
+ *
+ * The row and column accessors hand out the backing arrays. Only the first
+ * rowSize / columnSize entries are valid, and callers must not modify them.
+ * Nothing is synchronized. Callers that share a matrix across threads lock
+ * it for reads as well as writes, since a write can replace a row's arrays
+ * before it updates the row's size.
+ */
+public class RatingMatrix {
+    private static final int[] NO_IDS = new int[0];
+    private static final float[] NO_RATINGS = new float[0];
+    // Beyond this length ratio, probing the longer row beats a linear merge
+    private static final int SKEWED_ROW_FACTOR = 16;
+
+    private int[][] rowMovieIds = new int[16][];
+    private float[][] rowRatings = new float[16][];
+    private int[] rowSizes = new int[16];
+    private double[] rowSums = new double[16];
+
+    private int[][] columnUserIds = new int[16][];
+    private float[][] columnRatings = new float[16][];
+    private int[] columnSizes = new int[16];
+    private double[] columnSumsOfSquares = new double[16];
+
+    private long ratingCount;
+
+    /**
+     * Adds or replaces a rating in both the row and the column view.
+     */
+    public void set(int userId, int movieId, float rating) {
+        if (userId < 0 || movieId < 0) {
+            throw new IllegalArgumentException("User and movie ids must be non-negative");
+        }
+        ensureRowCapacity(userId);
+        ensureColumnCapacity(movieId);
+
+        float previous = insert(rowMovieIds, rowRatings, rowSizes, userId, movieId, rating);
+        insert(columnUserIds, columnRatings, columnSizes, movieId, userId, rating);
+
+        double delta = Float.isNaN(previous) ? rating : (double) rating - previous;
+        double squareDelta = Float.isNaN(previous)
+                ? (double) rating * rating
+                : (double) rating * rating - (double) previous * previous;
+        if (Float.isNaN(previous)) {
+            ratingCount++;
+        }
+        rowSums[userId] += delta;
+        columnSumsOfSquares[movieId] += squareDelta;
+    }
+
+    /**
+     * Returns the rating, or NaN if the user has not rated the movie.
+     */
+    public float get(int userId, int movieId) {
+        if (userId >= rowSizes.length) return Float.NaN;
+        int index = Arrays.binarySearch(movieIdsOf(userId), 0, rowSizes[userId], movieId);
+        return index >= 0 ? rowRatings[userId][index] : Float.NaN;
+    }
+
+    public boolean contains(int userId, int movieId) {
+        return !Float.isNaN(get(userId, movieId));
+    }
+
+    public int rowSize(int userId) {
+        return userId < rowSizes.length ? rowSizes[userId] : 0;
+    }
+
+    public int[] rowMovieIds(int userId) {
+        return userId < rowSizes.length ? movieIdsOf(userId) : NO_IDS;
+    }
+
+    public float[] rowRatings(int userId) {
+        return userId < rowSizes.length && rowRatings[userId] != null ? rowRatings[userId] : NO_RATINGS;
+    }
+
+    /**
+     * Mean of a user's ratings, or 0 if they have none.
+     */
+    public double rowMean(int userId) {
+        int size = rowSize(userId);
+        return size > 0 ? rowSums[userId] / size : 0.0;
+    }
+
+    /**
+     * Cosine similarity of two users over the movies both have rated, each side
+     * normalized by its co-rated ratings only. The two sorted rows are joined
+     * in a single pass; when one row is much longer, the shorter one is probed
+     * into it by binary search instead. Allocates nothing.
+     */
+    public double cosine(int userId1, int userId2) {
+        int size1 = rowSize(userId1);
+        int size2 = rowSize(userId2);
+        if (size1 == 0 || size2 == 0) return 0.0;
+
+        if (size1 > size2) {
+            return cosine(userId2, userId1);
+        }
+
+        int[] ids1 = rowMovieIds[userId1];
+        float[] ratings1 = rowRatings[userId1];
+        int[] ids2 = rowMovieIds[userId2];
+        float[] ratings2 = rowRatings[userId2];
+
+        double dotProduct = 0.0;
+        double norm1 = 0.0;
+        double norm2 = 0.0;
+
+        if (size2 > size1 * SKEWED_ROW_FACTOR) {
+            int from = 0;
+            for (int i = 0; i < size1 && from < size2; i++) {
+                int index = Arrays.binarySearch(ids2, from, size2, ids1[i]);
+                if (index < 0) {
+                    from = -index - 1;
+                    continue;
+                }
+                double rating1 = ratings1[i];
+                double rating2 = ratings2[index];
+                dotProduct += rating1 * rating2;
+                norm1 += rating1 * rating1;
+                norm2 += rating2 * rating2;
+                from = index + 1;
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < size1 && j < size2) {
+                int id1 = ids1[i];
+                int id2 = ids2[j];
+                if (id1 < id2) {
+                    i++;
+                } else if (id1 > id2) {
+                    j++;
+                } else {
+                    double rating1 = ratings1[i++];
+                    double rating2 = ratings2[j++];
+                    dotProduct += rating1 * rating2;
+                    norm1 += rating1 * rating1;
+                    norm2 += rating2 * rating2;
+                }
+            }
+        }
+
+        if (norm1 == 0.0 || norm2 == 0.0) return 0.0;
+
+        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    }
+
+    public int columnSize(int movieId) {
+        return movieId < columnSizes.length ? columnSizes[movieId] : 0;
+    }
+
+    public int[] columnUserIds(int movieId) {
+        return movieId < columnSizes.length && columnUserIds[movieId] != null ? columnUserIds[movieId] : NO_IDS;
+    }
+
+    public float[] columnRatings(int movieId) {
+        return movieId < columnSizes.length && columnRatings[movieId] != null ? columnRatings[movieId] : NO_RATINGS;
+    }
+
+    /**
+     * Euclidean norm of a movie's rating column.
+     */
+    public double columnNorm(int movieId) {
+        return movieId < columnSumsOfSquares.length ? Math.sqrt(columnSumsOfSquares[movieId]) : 0.0;
+    }
+
+    /**
+     * Exclusive upper bound on user ids that may have a row.
+     */
+    public int userIdBound() {
+        return rowSizes.length;
+    }
+
+    /**
+     * Exclusive upper bound on movie ids that may have a column.
+     */
+    public int movieIdBound() {
+        return columnSizes.length;
+    }
+
+    public long size() {
+        return ratingCount;
+    }
+
+    /**
+     * Drops the spare capacity left behind by incremental inserts. Worth
+     * calling once after a bulk load.
+     */
+    public void trimToSize() {
+        trim(rowMovieIds, rowRatings, rowSizes);
+        trim(columnUserIds, columnRatings, columnSizes);
+    }
+
+    private int[] movieIdsOf(int userId) {
+        return rowMovieIds[userId] != null ? rowMovieIds[userId] : NO_IDS;
+    }
+
+    // Inserts key into the sorted slot list, returning the rating it replaced or NaN
+    private static float insert(int[][] keys, float[][] values, int[] sizes, int slot, int key, float value) {
+        int size = sizes[slot];
+        if (keys[slot] == null) {
+            keys[slot] = new int[4];
+            values[slot] = new float[4];
+        }
+
+        int index = Arrays.binarySearch(keys[slot], 0, size, key);
+        if (index >= 0) {
+            float previous = values[slot][index];
+            values[slot][index] = value;
+            return previous;
+        }
+
+        index = -index - 1;
+        if (size == keys[slot].length) {
+            int capacity = Math.max(4, size * 2);
+            keys[slot] = Arrays.copyOf(keys[slot], capacity);
+            values[slot] = Arrays.copyOf(values[slot], capacity);
+        }
+        System.arraycopy(keys[slot], index, keys[slot], index + 1, size - index);
+        System.arraycopy(values[slot], index, values[slot], index + 1, size - index);
+        keys[slot][index] = key;
+        values[slot][index] = value;
+        sizes[slot] = size + 1;
+        return Float.NaN;
+    }
+
+    private static void trim(int[][] keys, float[][] values, int[] sizes) {
+        for (int slot = 0; slot < sizes.length; slot++) {
+            if (keys[slot] != null && keys[slot].length > sizes[slot]) {
+                keys[slot] = Arrays.copyOf(keys[slot], sizes[slot]);
+                values[slot] = Arrays.copyOf(values[slot], sizes[slot]);
+            }
+        }
+    }
+
+    private void ensureRowCapacity(int userId) {
+        if (userId >= rowSizes.length) {
+            int capacity = Math.max(userId + 1, rowSizes.length * 2);
+            rowMovieIds = Arrays.copyOf(rowMovieIds, capacity);
+            rowRatings = Arrays.copyOf(rowRatings, capacity);
+            rowSizes = Arrays.copyOf(rowSizes, capacity);
+            rowSums = Arrays.copyOf(rowSums, capacity);
+        }
+    }
+
+    private void ensureColumnCapacity(int movieId) {
+        if (movieId >= columnSizes.length) {
+            int capacity = Math.max(movieId + 1, columnSizes.length * 2);
+            columnUserIds = Arrays.copyOf(columnUserIds, capacity);
+            columnRatings = Arrays.copyOf(columnRatings, capacity);
+            columnSizes = Arrays.copyOf(columnSizes, capacity);
+            columnSumsOfSquares = Arrays.copyOf(columnSumsOfSquares, capacity);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+// RecommendationCache.java
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of per-user recommendation results keyed by (userId, limit).
+ * Entries expire after a fixed time to live, and once more than maxEntries
+ * are held the least recently used user's entries are evicted. Callers
+ * invalidate a user when their inputs change (a rating, a favorite genre)
+ * and everything when the catalog changes.
+ *
+ * A user's results also depend on other users' ratings, which do not
+ * invalidate anything; those reach a cached result once it expires.
+ *
+ * Results are computed outside the lock. A result whose computation
+ * overlapped an invalidation of its user, or of everything, is returned but
+ * not stored, so a read after an invalidation never sees an older result.
+ * Invalidating one user leaves other users' loads alone. Null results
+ * (failed loads) are never stored.
+ */
+public class RecommendationCache<V> {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    // userId -> (limit -> entry), least recently used user first
+    private final LinkedHashMap<Integer, Map<Integer, Entry<V>>> entriesByUser;
+    private int entryCount;
+    // Users with loads in progress; only their invalidations need tracking
+    private final Map<Integer, Loading> loadsByUser = new HashMap<>();
+    // Bumped by invalidateAll
+    private long invalidationEpoch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public RecommendationCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    public RecommendationCache(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("maxEntries and ttlMillis must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.entriesByUser = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class Loading {
+        int count;
+        long version; // invalidations of the user since its first load in progress started
+    }
+
+    /**
+     * Returns the cached result for (userId, limit), computing and storing it on
+     * a miss.
+     */
+    public V get(int userId, int limit, Supplier<V> loader) {
+        Loading loading;
+        long version;
+        long epoch;
+        synchronized (this) {
+            Map<Integer, Entry<V>> userEntries = entriesByUser.get(userId);
+            Entry<V> entry = userEntries != null ? userEntries.get(limit) : null;
+            if (entry != null) {
+                if (entry.expiresAt - System.nanoTime() > 0) {
+                    hits++;
+                    return entry.value;
+                }
+                expirations++;
+                userEntries.remove(limit);
+                entryCount--;
+                if (userEntries.isEmpty()) {
+                    entriesByUser.remove(userId);
+                }
+            }
+            misses++;
+            loading = loadsByUser.computeIfAbsent(userId, id -> new Loading());
+            loading.count++;
+            version = loading.version;
+            epoch = invalidationEpoch;
+        }
+
+        V value = null;
+        try {
+            value = loader.get();
+        } finally {
+            synchronized (this) {
+                if (--loading.count == 0) {
+                    loadsByUser.remove(userId);
+                }
+                if (value != null && version == loading.version && epoch == invalidationEpoch) {
+                    Entry<V> previous = entriesByUser.computeIfAbsent(userId, id -> new HashMap<>(4))
+                        .put(limit, new Entry<>(value, System.nanoTime() + ttlNanos));
+                    if (previous == null) {
+                        entryCount++;
+                        evictToSize();
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidateUser(int userId) {
+        Loading loading = loadsByUser.get(userId);
+        if (loading != null) {
+            loading.version++;
+        }
+        Map<Integer, Entry<V>> removed = entriesByUser.remove(userId);
+        if (removed != null) {
+            entryCount -= removed.size();
+            invalidations += removed.size();
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidationEpoch++;
+        invalidations += entryCount;
+        entriesByUser.clear();
+        entryCount = 0;
+    }
+
+    private void evictToSize() {
+        Iterator<Map<Integer, Entry<V>>> eldest = entriesByUser.values().iterator();
+        while (entryCount > maxEntries && eldest.hasNext()) {
+            int removed = eldest.next().size();
+            eldest.remove();
+            entryCount -= removed;
+            evictions += removed;
+        }
+    }
+
+    public synchronized int size() { return entryCount; }
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getMissCount() { return misses; }
+    public synchronized long getEvictionCount() { return evictions; }
+    public synchronized long getExpirationCount() { return expirations; }
+    public synchronized long getInvalidationCount() { return invalidations; }
+
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests > 0 ? (double) hits / requests : 0.0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RecommendationCache{size=%d, hits=%d, misses=%d, hitRate=%.3f, evictions=%d, expirations=%d, invalidations=%d}",
+                             entryCount, hits, misses, getHitRate(), evictions, expirations, invalidations);
+    }
+}
@@ -0,0 +1,366 @@
+// RecommendationEngine.java
+import java.util.*;
+
+class RecommendationEngine {
+    private MovieDatabase movieDatabase;
+    private Map<Integer, User> users;
+    private RatingMatrix ratings; // rows by user, columns by movie
+    private ItemSimilarityModel itemSimilarity;
+    private RecommendationCache<List<Movie>> recommendationCache;
+    private volatile FactorModel factorModel; // null until trained factors are loaded
+    private final RatingEventLog ratingEvents = new RatingEventLog("similarity-updater", this::applyRatingEvents);
+    private final UserListener userListener = new UserListener() {
+        @Override
+        public void onMovieRated(User user, int movieId, double rating) {
+            // The rating is already in the matrix; neighbor lists catch up on the updater thread
+            ratingEvents.publish(user.getUserId(), movieId, rating);
+            recommendationCache.invalidateUser(user.getUserId());
+        }
+        
+        @Override
+        public void onProfileChanged(User user) {
+            recommendationCache.invalidateUser(user.getUserId());
+        }
+    };
+    
+    public RecommendationEngine(MovieDatabase movieDatabase) {
+        this(movieDatabase, new RatingMatrix());
+    }
+    
+    // Adopts an already filled matrix, as built by a bulk loader; register its users with addUsers
+    RecommendationEngine(MovieDatabase movieDatabase, RatingMatrix ratings) {
+        this.movieDatabase = movieDatabase;
+        this.users = new HashMap<>();
+        this.ratings = ratings;
+        this.itemSimilarity = new ItemSimilarityModel(ratings);
+        this.recommendationCache = new RecommendationCache<>();
+        // Any catalog change can reorder anyone's recommendations
+        movieDatabase.addMovieListener(movie -> recommendationCache.invalidateAll());
+    }
+    
+    /**
+     * Registers many users at once and builds the item similarity model in a
+     * single parallel pass, instead of patching it rating by rating.
+     */
+    public void addUsers(Collection<User> newUsers) {
+        for (User user : newUsers) {
+            users.put(user.getUserId(), user);
+            user.attachTo(ratings);
+            user.setListener(userListener);
+        }
+        ratings.trimToSize();
+        itemSimilarity.rebuild();
+    }
+    
+    public void addUser(User user) {
+        users.put(user.getUserId(), user);
+        recommendationCache.invalidateUser(user.getUserId());
+        
+        // Move ratings made before the user was registered into the shared matrix
+        user.attachTo(ratings);
+        int userId = user.getUserId();
+        synchronized (ratings) {
+            int[] movieIds = ratings.rowMovieIds(userId);
+            float[] movieRatings = ratings.rowRatings(userId);
+            for (int i = 0; i < ratings.rowSize(userId); i++) {
+                ratingEvents.publish(userId, movieIds[i], movieRatings[i]);
+            }
+        }
+        user.setListener(userListener);
+    }
+    
+    // Runs on the updater thread. Recommendations computed before the neighbor lists changed are dropped.
+    private void applyRatingEvents(List<RatingEventLog.RatingEvent> batch) {
+        itemSimilarity.refreshMovies(batch.stream().mapToInt(RatingEventLog.RatingEvent::getMovieId).toArray());
+        for (RatingEventLog.RatingEvent event : batch) {
+            recommendationCache.invalidateUser(event.getUserId());
+        }
+    }
+    
+    /**
+     * Rating events waiting for the similarity updater, for lag metrics or for
+     * waiting until the neighbor lists reflect every rating made so far.
+     */
+    public RatingEventLog getRatingEventLog() {
+        return ratingEvents;
+    }
+    
+    /**
+     * Top recommendations for a user, served from the result cache when the
+     * user's ratings, genres and the catalog are unchanged since the last call.
+     * The returned list is read-only.
+     */
+    public List<Movie> getRecommendations(int userId, int numRecommendations) {
+        User user = users.get(userId);
+        if (user == null) {
+            return new ArrayList<>();
+        }
+        return recommendationCache.get(userId, numRecommendations,
+                                       () -> Collections.unmodifiableList(computeRecommendations(user, numRecommendations)));
+    }
+    
+    public RecommendationCache<List<Movie>> getRecommendationCache() {
+        return recommendationCache;
+    }
+    
+    /**
+     * Adds matrix factorization as a recommendation source. Ratings made after
+     * training only reach the factors at the next training run. When the model
+     * carries a movie index, candidates come from a nearest-neighbor search in
+     * it instead of a scan of the whole catalog.
+     */
+    public void setFactorModel(FactorModel factorModel) {
+        this.factorModel = factorModel;
+        recommendationCache.invalidateAll();
+    }
+    
+    public FactorModel getFactorModel() {
+        return factorModel;
+    }
+    
+    /**
+     * Unwatched movies with the highest predicted rating under the factor model,
+     * best first. Empty without a model or for a user it was not trained on.
+     */
+    public List<Movie> getFactorRecommendations(int userId, int numRecommendations) {
+        User user = users.get(userId);
+        FactorModel model = factorModel;
+        if (user == null || model == null) {
+            return new ArrayList<>();
+        }
+        return getFactorRecommendations(model, user, numRecommendations);
+    }
+    
+    private List<Movie> getFactorRecommendations(FactorModel model, User user, int numRecommendations) {
+        TopKSelector top = model.topMovies(user.getUserId(), numRecommendations,
+                                           movieId -> user.hasWatched(movieId) || movieDatabase.getMovie(movieId) == null);
+        return top.toList(movieDatabase::getMovie);
+    }
+    
+    /**
+     * Unwatched movies whose factors are nearest, by inner product, to the
+     * user's in the model's HNSW index. Approximate: a movie that the exact
+     * ranking would include can be missed.
+     */
+    private List<Movie> getNearestNeighborRecommendations(FactorModel model, User user, int numRecommendations) {
+        TopKSelector top = model.approximateTopMovies(user.getUserId(), numRecommendations,
+                                                      movieId -> user.hasWatched(movieId) || movieDatabase.getMovie(movieId) == null);
+        return top.toList(movieDatabase::getMovie);
+    }
+    
+    private List<Movie> computeRecommendations(User user, int numRecommendations) {
+        Set<Movie> recommendations = new HashSet<>();
+        
+        // Content-based filtering
+        recommendations.addAll(getContentBasedRecommendations(user, numRecommendations));
+        
+        // Collaborative filtering
+        recommendations.addAll(getCollaborativeRecommendations(user, numRecommendations));
+        
+        // Item-item similarity to the user's favorite movies
+        recommendations.addAll(getItemBasedRecommendations(user, numRecommendations));
+        
+        // Popularity-based recommendations
+        recommendations.addAll(getPopularityBasedRecommendations(user, numRecommendations));
+        
+        // Matrix factorization, once factors are loaded; from the movie index when it has one
+        FactorModel model = factorModel;
+        if (model != null && model.getMovieIndex() != null) {
+            recommendations.addAll(getNearestNeighborRecommendations(model, user, numRecommendations));
+        } else if (model != null) {
+            recommendations.addAll(getFactorRecommendations(model, user, numRecommendations));
+        }
+        
+        // Skip already watched movies and return the top rated of the rest
+        TopKSelector top = new TopKSelector(numRecommendations);
+        for (Movie movie : recommendations) {
+            if (!user.hasWatched(movie.getId())) {
+                top.offer(movie.getId(), movie.getRating());
+            }
+        }
+        return top.toList(movieDatabase::getMovie);
+    }
+    
+    private List<Movie> getContentBasedRecommendations(User user, int numRecommendations) {
+        List<Movie> recommendations = new ArrayList<>();
+        
+        // Recommend based on favorite genres
+        List<String> favoriteGenres = user.getFavoriteGenres();
+        int perGenre = numRecommendations / Math.max(1, favoriteGenres.size());
+        
+        for (String genre : favoriteGenres) {
+            recommendations.addAll(takeUnwatched(movieDatabase.getMoviesByGenre(genre), user, perGenre));
+        }
+        
+        // Recommend based on directors of highly rated movies
+        int userId = user.getUserId();
+        Set<String> preferredDirectors = new HashSet<>();
+        
+        synchronized (ratings) {
+            int[] ratedIds = ratings.rowMovieIds(userId);
+            float[] ratedValues = ratings.rowRatings(userId);
+            for (int i = 0; i < ratings.rowSize(userId); i++) {
+                if (ratedValues[i] >= 4.0) {
+                    Movie movie = movieDatabase.getMovie(ratedIds[i]);
+                    if (movie != null) {
+                        preferredDirectors.add(movie.getDirector());
+                    }
+                }
+            }
+        }
+        
+        for (String director : preferredDirectors) {
+            recommendations.addAll(takeUnwatched(movieDatabase.getMoviesByDirector(director), user, 2));
+        }
+        
+        return recommendations;
+    }
+    
+    // The index views are already best rated first, so the first unwatched ones are the top ones
+    private List<Movie> takeUnwatched(List<Movie> moviesByRating, User user, int limit) {
+        List<Movie> selected = new ArrayList<>(limit);
+        for (Movie movie : moviesByRating) {
+            if (selected.size() == limit) break;
+            if (!user.hasWatched(movie.getId())) {
+                selected.add(movie);
+            }
+        }
+        return selected;
+    }
+    
+    private List<Movie> getCollaborativeRecommendations(User user, int numRecommendations) {
+        TopKSelector top = new TopKSelector(numRecommendations);
+        Set<Integer> offered = new HashSet<>();
+        
+        // Find similar users based on movie ratings
+        List<User> similarUsers = findSimilarUsers(user, 5);
+        
+        for (User similarUser : similarUsers) {
+            int similarUserId = similarUser.getUserId();
+            synchronized (ratings) {
+                int[] movieIds = ratings.rowMovieIds(similarUserId);
+                float[] movieRatings = ratings.rowRatings(similarUserId);
+                for (int i = 0; i < ratings.rowSize(similarUserId); i++) {
+                    if (movieRatings[i] >= 4.0 && !user.hasWatched(movieIds[i]) && offered.add(movieIds[i])) {
+                        Movie movie = movieDatabase.getMovie(movieIds[i]);
+                        if (movie != null) {
+                            top.offer(movie.getId(), movie.getRating());
+                        }
+                    }
+                }
+            }
+        }
+        
+        return top.toList(movieDatabase::getMovie);
+    }
+    
+    private List<Movie> getItemBasedRecommendations(User user, int numRecommendations) {
+        int userId = user.getUserId();
+        Map<Integer, Double> scores = new HashMap<>();
+        
+        // Score each neighbor of a highly rated movie by similarity weighted with that rating
+        synchronized (ratings) {
+            int[] ratedIds = ratings.rowMovieIds(userId);
+            float[] ratedValues = ratings.rowRatings(userId);
+            for (int r = 0; r < ratings.rowSize(userId); r++) {
+                if (ratedValues[r] < 4.0) continue;
+                
+                ItemSimilarityModel.Neighbors neighbors = itemSimilarity.getNeighbors(ratedIds[r]);
+                for (int i = 0; i < neighbors.size(); i++) {
+                    int movieId = neighbors.movieId(i);
+                    if (!user.hasWatched(movieId)) {
+                        scores.merge(movieId, (double) neighbors.similarity(i) * ratedValues[r], Double::sum);
+                    }
+                }
+            }
+        }
+        
+        TopKSelector top = new TopKSelector(numRecommendations);
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            if (movieDatabase.getMovie(entry.getKey()) != null) {
+                top.offer(entry.getKey(), entry.getValue());
+            }
+        }
+        return top.toList(movieDatabase::getMovie);
+    }
+    
+    public List<Movie> getSimilarMovies(int movieId, int limit) {
+        ItemSimilarityModel.Neighbors neighbors = itemSimilarity.getNeighbors(movieId);
+        List<Movie> similarMovies = new ArrayList<>();
+        
+        for (int i = 0; i < neighbors.size() && similarMovies.size() < limit; i++) {
+            Movie movie = movieDatabase.getMovie(neighbors.movieId(i));
+            if (movie != null) {
+                similarMovies.add(movie);
+            }
+        }
+        return similarMovies;
+    }
+    
+    private List<Movie> getPopularityBasedRecommendations(User user, int numRecommendations) {
+        // At most getWatchedCount() of the top movies can be filtered out
+        List<Movie> popular = movieDatabase.getHighRatedMovies(8.0, numRecommendations + user.getWatchedCount());
+        List<Movie> recommendations = new ArrayList<>(numRecommendations);
+        for (Movie movie : popular) {
+            if (recommendations.size() == numRecommendations) break;
+            if (!user.hasWatched(movie.getId())) {
+                recommendations.add(movie);
+            }
+        }
+        return recommendations;
+    }
+    
+    List<User> findSimilarUsers(User user, int numSimilar) {
+        if (numSimilar <= 0) {
+            return new ArrayList<>();
+        }
+        
+        // Only users who share at least one rated movie can have a non-zero similarity:
+        // gather the raters of each of the user's movies from the by-movie view, then dedupe
+        int userId = user.getUserId();
+        TopKSelector topSimilar = new TopKSelector(numSimilar);
+        
+        synchronized (ratings) {
+            int[] ratedIds = ratings.rowMovieIds(userId);
+            int postings = 0;
+            for (int i = 0; i < ratings.rowSize(userId); i++) {
+                postings += ratings.columnSize(ratedIds[i]);
+            }
+            int[] candidateIds = new int[postings];
+            int count = 0;
+            for (int i = 0; i < ratings.rowSize(userId); i++) {
+                System.arraycopy(ratings.columnUserIds(ratedIds[i]), 0, candidateIds, count, ratings.columnSize(ratedIds[i]));
+                count += ratings.columnSize(ratedIds[i]);
+            }
+            Arrays.sort(candidateIds, 0, count);
+            
+            for (int i = 0; i < count; i++) {
+                int candidateId = candidateIds[i];
+                if (candidateId == userId || (i > 0 && candidateId == candidateIds[i - 1])) continue;
+                User otherUser = users.get(candidateId);
+                if (otherUser == null) continue;
+                
+                double similarity = calculateUserSimilarity(user, otherUser);
+                if (similarity > 0) {
+                    topSimilar.offer(candidateId, similarity);
+                }
+            }
+        }
+        
+        return topSimilar.toList(users::get);
+    }
+    
+    double calculateUserSimilarity(User user1, User user2) {
+        synchronized (ratings) {
+            return ratings.cosine(user1.getUserId(), user2.getUserId());
+        }
+    }
+    
+    public User getUser(int userId) {
+        return users.get(userId);
+    }
+    
+    public Collection<User> getAllUsers() {
+        return users.values();
+    }
+}
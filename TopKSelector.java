@@ -0,0 +1,149 @@
+// TopKSelector.java
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Selects the k highest-scoring ids from a stream of (id, score) pairs. The
+ * candidates live in a bounded binary min-heap over parallel int/double arrays,
+ * so each offer costs O(log k), and {@link #sort()} heapsorts them in place.
+ * Picking the top k of n candidates is O(n log k) with no boxing and no
+ * intermediate sorted lists.
+ *
+ * Equal scores rank the smaller id first, so results are deterministic.
+ * A selector is not thread-safe; use one per query.
+ */
+public class TopKSelector {
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+    private boolean sorted;
+
+    public TopKSelector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.ids = new int[k];
+        this.scores = new double[k];
+    }
+
+    /**
+     * Offers a candidate, which is kept only if it ranks among the best k so far.
+     */
+    public void offer(int id, double score) {
+        if (sorted) {
+            throw new IllegalStateException("Selector was already sorted; clear() it before reuse");
+        }
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && ranksAbove(id, score, ids[0], scores[0])) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Whether a candidate with this score could still be selected. Lets callers
+     * skip expensive lookups for hopeless candidates.
+     */
+    public boolean accepts(double score) {
+        return size < ids.length || (size > 0 && score >= scores[0]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Orders the selected candidates best first, in place. After this, read them
+     * with {@link #id(int)} and {@link #score(int)}.
+     */
+    public void sort() {
+        if (sorted) return;
+        // Heapsort on a min-heap: each pass moves the current worst to the end
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        sorted = true;
+    }
+
+    public int id(int rank) {
+        checkRank(rank);
+        return ids[rank];
+    }
+
+    public double score(int rank) {
+        checkRank(rank);
+        return scores[rank];
+    }
+
+    /**
+     * Sorts the selection and maps each id to an object, best first. Ids the
+     * lookup maps to null are skipped.
+     */
+    public <T> List<T> toList(IntFunction<T> lookup) {
+        sort();
+        List<T> result = new ArrayList<>(size);
+        for (int rank = 0; rank < size; rank++) {
+            T item = lookup.apply(ids[rank]);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        size = 0;
+        sorted = false;
+    }
+
+    private void checkRank(int rank) {
+        if (!sorted) {
+            throw new IllegalStateException("Call sort() before reading ranked results");
+        }
+        Objects.checkIndex(rank, size);
+    }
+
+    private static boolean ranksAbove(int id1, double score1, int id2, double score2) {
+        return score1 > score2 || (score1 == score2 && id1 < id2);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksAbove(ids[parent], scores[parent], ids[index], scores[index])) break;
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int end) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < end && ranksAbove(ids[worst], scores[worst], ids[left], scores[left])) {
+                worst = left;
+            }
+            if (right < end && ranksAbove(ids[worst], scores[worst], ids[right], scores[right])) {
+                worst = right;
+            }
+            if (worst == index) return;
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,144 @@
+// User.java
+import java.util.*;
+
+class User {
+    private int userId;
+    private String name;
+    private List<String> favoriteGenres;
+    private Set<Integer> unratedWatched; // rated movies count as watched through the matrix
+    private RatingMatrix ratings; // shared matrix whose row holds this user's ratings, once registered
+    private Map<Integer, Double> pendingRatings; // ratings made before registration
+    private UserListener listener;
+    
+    public User(int userId, String name) {
+        this(userId, name, null);
+        this.pendingRatings = new LinkedHashMap<>();
+    }
+    
+    // View over a row that may already be filled, as after a bulk load
+    User(int userId, String name, RatingMatrix ratings) {
+        this.userId = userId;
+        this.name = name;
+        this.favoriteGenres = new ArrayList<>();
+        this.unratedWatched = new LinkedHashSet<>();
+        this.ratings = ratings;
+    }
+    
+    public void addFavoriteGenre(String genre) {
+        if (!favoriteGenres.contains(genre)) {
+            favoriteGenres.add(genre);
+            if (listener != null) {
+                listener.onProfileChanged(this);
+            }
+        }
+    }
+    
+    public void addWatchedMovie(int movieId) {
+        if (!hasRated(movieId) && unratedWatched.add(movieId) && listener != null) {
+            listener.onProfileChanged(this);
+        }
+    }
+    
+    public void rateMovie(int movieId, double rating) {
+        if (rating >= 1.0 && rating <= 5.0) {
+            if (ratings != null) {
+                // The engine's similarity updater reads the shared matrix on its own thread
+                synchronized (ratings) {
+                    ratings.set(userId, movieId, (float) rating);
+                }
+            } else {
+                pendingRatings.put(movieId, rating);
+            }
+            unratedWatched.remove(movieId);
+            if (listener != null) {
+                listener.onMovieRated(this, movieId, rating);
+            }
+        }
+    }
+    
+    // Moves this user's ratings into a shared matrix, which then backs all rating reads and writes
+    void attachTo(RatingMatrix sharedRatings) {
+        if (sharedRatings == ratings) return;
+        synchronized (sharedRatings) {
+            if (ratings != null) {
+                int[] movieIds = ratings.rowMovieIds(userId);
+                float[] movieRatings = ratings.rowRatings(userId);
+                for (int i = 0; i < ratings.rowSize(userId); i++) {
+                    sharedRatings.set(userId, movieIds[i], movieRatings[i]);
+                }
+            } else {
+                for (Map.Entry<Integer, Double> entry : pendingRatings.entrySet()) {
+                    sharedRatings.set(userId, entry.getKey(), entry.getValue().floatValue());
+                }
+                pendingRatings = null;
+            }
+        }
+        this.ratings = sharedRatings;
+    }
+    
+    void setListener(UserListener listener) {
+        this.listener = listener;
+    }
+    
+    // Reads of the shared matrix lock it, as its writers do
+    private boolean hasRated(int movieId) {
+        if (ratings == null) {
+            return pendingRatings.containsKey(movieId);
+        }
+        synchronized (ratings) {
+            return ratings.contains(userId, movieId);
+        }
+    }
+    
+    // Getters
+    public int getUserId() { return userId; }
+    public String getName() { return name; }
+    public List<String> getFavoriteGenres() { return new ArrayList<>(favoriteGenres); }
+    public boolean hasWatched(int movieId) { return hasRated(movieId) || unratedWatched.contains(movieId); }
+    public int getWatchedCount() { return getRatingCount() + unratedWatched.size(); }
+    
+    public int getRatingCount() {
+        if (ratings == null) {
+            return pendingRatings.size();
+        }
+        synchronized (ratings) {
+            return ratings.rowSize(userId);
+        }
+    }
+    
+    public List<Integer> getWatchedMovies() {
+        List<Integer> watched = new ArrayList<>(getMovieRatings().keySet());
+        watched.addAll(unratedWatched);
+        return watched;
+    }
+    
+    public Map<Integer, Double> getMovieRatings() {
+        if (ratings == null) {
+            return new HashMap<>(pendingRatings);
+        }
+        Map<Integer, Double> movieRatings = new HashMap<>();
+        synchronized (ratings) {
+            int[] movieIds = ratings.rowMovieIds(userId);
+            float[] values = ratings.rowRatings(userId);
+            for (int i = 0; i < ratings.rowSize(userId); i++) {
+                movieRatings.put(movieIds[i], (double) values[i]);
+            }
+        }
+        return movieRatings;
+    }
+    
+    public double getAverageRating() {
+        if (ratings == null) {
+            return pendingRatings.values().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        }
+        synchronized (ratings) {
+            return ratings.rowMean(userId);
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("User{userId=%d, name='%s', favoriteGenres=%s, watchedMovies=%d}", 
+                           userId, name, favoriteGenres, getWatchedCount());
+    }
+}
@@ -0,0 +1,8 @@
+// UserListener.java
+
+interface UserListener {
+    void onMovieRated(User user, int movieId, double rating);
+    
+    // Favorite genres or unrated watched movies changed
+    void onProfileChanged(User user);
+}
@@ -0,0 +1,88 @@
+package com.movierecommendation.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ALS training and factor scoring on a synthetic data set. trainIteration
+ * times one full iteration (user and movie half-steps); topMovies times
+ * ranking the whole catalog for one user by dot product.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FactorModelBenchmark {
+    private static final int SAMPLED_USERS = 1024;
+
+    @Param("5000")
+    int movies;
+
+    @Param("20000")
+    int users;
+
+    @Param("1000000")
+    long ratings;
+
+    @Param("42")
+    long seed;
+
+    @Param("32")
+    int rank;
+
+    @Param("10")
+    int numRecommendations;
+
+    private RatingMatrix ratingMatrix;
+    private FactorModel model;
+    private int[] sampledUserIds;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SyntheticDataGenerator.Dataset dataset = new SyntheticDataGenerator(seed).generate(movies, users, ratings);
+        System.out.println(dataset);
+
+        ratingMatrix = new RatingMatrix();
+        for (User user : dataset.engine.getAllUsers()) {
+            for (Map.Entry<Integer, Double> rating : user.getMovieRatings().entrySet()) {
+                ratingMatrix.set(user.getUserId(), rating.getKey(), rating.getValue().floatValue());
+            }
+        }
+        model = new AlsTrainer(rank, AlsTrainer.DEFAULT_LAMBDA, AlsTrainer.DEFAULT_ITERATIONS, seed).train(ratingMatrix);
+
+        Random random = new Random(seed);
+        sampledUserIds = new int[SAMPLED_USERS];
+        for (int i = 0; i < sampledUserIds.length; i++) {
+            sampledUserIds[i] = 1 + random.nextInt(users);
+        }
+    }
+
+    /**
+     * Per-thread position in the user sample.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int nextUserId(int[] sampledUserIds) {
+            next = (next + 1) % sampledUserIds.length;
+            return sampledUserIds[next];
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public FactorModel trainIteration() {
+        return new AlsTrainer(rank, AlsTrainer.DEFAULT_LAMBDA, 1, seed).train(ratingMatrix);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public TopKSelector topMovies(Cursor cursor) {
+        int userId = cursor.nextUserId(sampledUserIds);
+        return model.topMovies(userId, numRecommendations, movieId -> ratingMatrix.contains(userId, movieId));
+    }
+}
@@ -0,0 +1,121 @@
+package com.movierecommendation.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * Approximate top-k from the HNSW movie index against the exact catalog scan,
+ * on ALS factors trained from a synthetic data set. search times one index
+ * query at the given ef; exact times FactorModel.topMovies for the same users.
+ * Recall@k of the index at that ef is printed once per trial, so each ef row
+ * can be read as a recall-vs-latency point next to the exact baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class HnswIndexBenchmark {
+    private static final int SAMPLED_USERS = 1024;
+
+    @Param("20000")
+    int movies;
+
+    @Param("20000")
+    int users;
+
+    @Param("1000000")
+    long ratings;
+
+    @Param("42")
+    long seed;
+
+    @Param("32")
+    int rank;
+
+    @Param("10")
+    int numRecommendations;
+
+    @Param({"16", "32", "64", "128", "256"})
+    int ef;
+
+    private RatingMatrix ratingMatrix;
+    private FactorModel model;
+    private int[] sampledUserIds;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SyntheticDataGenerator.Dataset dataset = new SyntheticDataGenerator(seed).generate(movies, users, ratings);
+        System.out.println(dataset);
+
+        ratingMatrix = new RatingMatrix();
+        for (User user : dataset.engine.getAllUsers()) {
+            for (Map.Entry<Integer, Double> rating : user.getMovieRatings().entrySet()) {
+                ratingMatrix.set(user.getUserId(), rating.getKey(), rating.getValue().floatValue());
+            }
+        }
+        FactorModel trained = new AlsTrainer(rank, AlsTrainer.DEFAULT_LAMBDA, AlsTrainer.DEFAULT_ITERATIONS, seed).train(ratingMatrix);
+        long start = System.nanoTime();
+        HnswIndex index = trained.buildMovieIndex(HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION);
+        index.setDefaultEf(ef);
+        model = trained.withMovieIndex(index);
+        System.out.printf("Built %s in %.1f s%n", index, (System.nanoTime() - start) / 1e9);
+
+        Random random = new Random(seed);
+        List<Integer> trainedUsers = new ArrayList<>();
+        while (trainedUsers.size() < SAMPLED_USERS) {
+            int userId = 1 + random.nextInt(users);
+            if (model.hasUser(userId)) trainedUsers.add(userId);
+        }
+        sampledUserIds = trainedUsers.stream().mapToInt(Integer::intValue).toArray();
+        System.out.printf("ef=%d recall@%d=%.4f%n", ef, numRecommendations, recall());
+    }
+
+    private double recall() {
+        long found = 0;
+        long expected = 0;
+        for (int userId : sampledUserIds) {
+            IntPredicate watched = movieId -> ratingMatrix.contains(userId, movieId);
+            TopKSelector exact = model.topMovies(userId, numRecommendations, watched);
+            TopKSelector approximate = model.approximateTopMovies(userId, numRecommendations, watched);
+            Set<Integer> exactIds = new HashSet<>();
+            for (int i = 0; i < exact.size(); i++) {
+                exactIds.add(exact.id(i));
+            }
+            for (int i = 0; i < approximate.size(); i++) {
+                if (exactIds.contains(approximate.id(i))) found++;
+            }
+            expected += exactIds.size();
+        }
+        return expected > 0 ? (double) found / expected : 1.0;
+    }
+
+    /**
+     * Per-thread position in the user sample.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int nextUserId(int[] sampledUserIds) {
+            next = (next + 1) % sampledUserIds.length;
+            return sampledUserIds[next];
+        }
+    }
+
+    @Benchmark
+    public TopKSelector search(Cursor cursor) {
+        int userId = cursor.nextUserId(sampledUserIds);
+        return model.approximateTopMovies(userId, numRecommendations, movieId -> ratingMatrix.contains(userId, movieId));
+    }
+
+    @Benchmark
+    public TopKSelector exact(Cursor cursor) {
+        int userId = cursor.nextUserId(sampledUserIds);
+        return model.topMovies(userId, numRecommendations, movieId -> ratingMatrix.contains(userId, movieId));
+    }
+}
@@ -0,0 +1,91 @@
+package com.movierecommendation.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog query latency of {@link MovieDatabase} on a synthetic catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieDatabaseBenchmark {
+    private static final int LIMIT = 20;
+
+    @Param("10000")
+    int movies;
+
+    @Param("42")
+    long seed;
+
+    private MovieDatabase movieDatabase;
+    private String[] genres;
+    private String[] directors;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        movieDatabase = new SyntheticDataGenerator(seed).generateCatalog(movies);
+        genres = movieDatabase.getAllGenres().toArray(new String[0]);
+
+        Random random = new Random(seed);
+        directors = new String[256];
+        for (int i = 0; i < directors.length; i++) {
+            directors[i] = movieDatabase.getMovie(1 + random.nextInt(movies)).getDirector();
+        }
+    }
+
+    /**
+     * Per-thread rotation through query arguments.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int bound) {
+            next = (next + 1) % bound;
+            return next;
+        }
+    }
+
+    @Benchmark
+    public List<Movie> getMoviesByGenre(Cursor cursor) {
+        return movieDatabase.getMoviesByGenre(genres[cursor.next(genres.length)]);
+    }
+
+    @Benchmark
+    public List<Movie> getMoviesByDirector(Cursor cursor) {
+        return movieDatabase.getMoviesByDirector(directors[cursor.next(directors.length)]);
+    }
+
+    @Benchmark
+    public List<Movie> getMoviesByYearRange(Cursor cursor) {
+        int start = 1960 + cursor.next(6) * 10;
+        return movieDatabase.getMoviesByYearRange(start, start + 9);
+    }
+
+    @Benchmark
+    public List<Movie> getMoviesByYearRangeLimited(Cursor cursor) {
+        int start = 1960 + cursor.next(6) * 10;
+        return movieDatabase.getMoviesByYearRange(start, start + 9, LIMIT);
+    }
+
+    @Benchmark
+    public List<Movie> getHighRatedMovies() {
+        return movieDatabase.getHighRatedMovies(8.0);
+    }
+
+    @Benchmark
+    public List<Movie> getHighRatedMoviesLimited() {
+        return movieDatabase.getHighRatedMovies(8.0, LIMIT);
+    }
+
+    @Benchmark
+    public List<String> getAllGenres() {
+        return movieDatabase.getAllGenres();
+    }
+}
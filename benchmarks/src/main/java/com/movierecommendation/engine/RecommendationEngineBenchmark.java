@@ -0,0 +1,81 @@
+package com.movierecommendation.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of the recommendation engine on a synthetic data set. The
+ * defaults build in well under a minute; run at MovieLens scale with
+ * -p movies=10000 -p users=100000 -p ratings=10000000 (and a larger heap).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RecommendationEngineBenchmark {
+    private static final int SAMPLED_USERS = 1024;
+
+    @Param("5000")
+    int movies;
+
+    @Param("20000")
+    int users;
+
+    @Param("1000000")
+    long ratings;
+
+    @Param("42")
+    long seed;
+
+    @Param("10")
+    int numRecommendations;
+
+    private RecommendationEngine engine;
+    private User[] sampledUsers;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        SyntheticDataGenerator.Dataset dataset = new SyntheticDataGenerator(seed).generate(movies, users, ratings);
+        System.out.println(dataset);
+        engine = dataset.engine;
+
+        // Query a fixed sample of users so every run sees the same mix of light and heavy raters
+        Random random = new Random(seed);
+        sampledUsers = new User[SAMPLED_USERS];
+        for (int i = 0; i < sampledUsers.length; i++) {
+            sampledUsers[i] = engine.getUser(1 + random.nextInt(users));
+        }
+    }
+
+    /**
+     * Per-thread position in the user sample.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        User nextUser(User[] sampledUsers) {
+            next = (next + 1) % sampledUsers.length;
+            return sampledUsers[next];
+        }
+    }
+
+    @Benchmark
+    public List<Movie> getRecommendations(Cursor cursor) {
+        return engine.getRecommendations(cursor.nextUser(sampledUsers).getUserId(), numRecommendations);
+    }
+
+    @Benchmark
+    public List<User> findSimilarUsers(Cursor cursor) {
+        return engine.findSimilarUsers(cursor.nextUser(sampledUsers), 5);
+    }
+
+    @Benchmark
+    public double calculateUserSimilarity(Cursor cursor) {
+        return engine.calculateUserSimilarity(cursor.nextUser(sampledUsers), cursor.nextUser(sampledUsers));
+    }
+}
@@ -0,0 +1,245 @@
+package com.movierecommendation.engine;
+
+import java.util.*;
+
+/**
+ * Seeded generator for MovieLens-shaped data sets. The same seed and scale
+ * always produce the same catalog, users and ratings.
+ *
+ * The shape follows the public MovieLens releases: movie popularity is Zipf
+ * distributed (a few blockbusters collect most ratings, with a long tail),
+ * user activity is lognormal (most users rate a few dozen movies, a handful
+ * rate thousands), and ratings are half stars around a per-movie quality
+ * shifted by a per-user bias. Genres are weighted by their MovieLens counts
+ * and directors are drawn from a Zipf-weighted pool.
+ */
+public final class SyntheticDataGenerator {
+    private static final String[] GENRES = {
+        "Drama", "Comedy", "Thriller", "Romance", "Action", "Horror", "Documentary", "Crime", "Adventure",
+        "Sci-Fi", "Children", "Animation", "Mystery", "Fantasy", "War", "Western", "Musical", "Film-Noir"
+    };
+    // Movies per genre in MovieLens 25M
+    private static final double[] GENRE_WEIGHTS = {
+        25606, 16870, 8654, 7719, 7348, 5989, 5605, 5319, 4145,
+        3595, 2935, 2929, 2925, 2731, 1874, 1399, 1054, 353
+    };
+    private static final double POPULARITY_EXPONENT = 1.0;
+    private static final double ACTIVITY_SIGMA = 1.1;
+    private static final int MIN_RATINGS_PER_USER = 20;
+    private static final int LATEST_YEAR = 2023;
+    private static final int EARLIEST_YEAR = 1915;
+
+    private final long seed;
+
+    public SyntheticDataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * A generated catalog with its users registered in a recommendation engine.
+     */
+    public static final class Dataset {
+        public final MovieDatabase movieDatabase;
+        public final RecommendationEngine engine;
+        public final int movieCount;
+        public final int userCount;
+        public final long ratingCount;
+
+        private Dataset(MovieDatabase movieDatabase, RecommendationEngine engine,
+                        int movieCount, int userCount, long ratingCount) {
+            this.movieDatabase = movieDatabase;
+            this.engine = engine;
+            this.movieCount = movieCount;
+            this.userCount = userCount;
+            this.ratingCount = ratingCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Dataset{movies=%d, users=%d, ratings=%d}", movieCount, userCount, ratingCount);
+        }
+    }
+
+    /**
+     * Builds a catalog of movies with ids 1..movieCount.
+     */
+    public MovieDatabase generateCatalog(int movieCount) {
+        return generateCatalog(movieCount, movieQualities(movieCount));
+    }
+
+    /**
+     * Builds a catalog plus userCount users (ids 1..userCount) holding roughly
+     * ratingCount ratings in total, and registers them with a new engine.
+     */
+    public Dataset generate(int movieCount, int userCount, long ratingCount) {
+        if (movieCount <= 0 || userCount <= 0 || ratingCount < 0) {
+            throw new IllegalArgumentException("Movie and user counts must be positive and rating count non-negative");
+        }
+        double[] quality = movieQualities(movieCount);
+        MovieDatabase movieDatabase = generateCatalog(movieCount, quality);
+
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        int[] activity = userActivity(random, movieCount, userCount, ratingCount);
+        ZipfSampler popularity = new ZipfSampler(random, movieCount, POPULARITY_EXPONENT, true);
+
+        // Rows and columns are both filled in ascending id order, so every insert is an append
+        RatingMatrix ratings = new RatingMatrix();
+        int[] chosen = new int[movieCount + 1]; // user id that last picked each movie
+        List<User> users = new ArrayList<>(userCount);
+        for (int userId = 1; userId <= userCount; userId++) {
+            User user = new User(userId, "User " + userId, ratings);
+            for (String genre : pickGenres(random, 1 + random.nextInt(3))) {
+                user.addFavoriteGenre(genre);
+            }
+
+            int[] movieIds = pickMovies(random, popularity, chosen, userId, activity[userId - 1]);
+            double bias = random.nextGaussian() * 0.4;
+            for (int movieId : movieIds) {
+                double stars = quality[movieId] + bias + random.nextGaussian() * 0.9;
+                ratings.set(userId, movieId, (float) clamp(Math.round(stars * 2) / 2.0, 1.0, 5.0));
+            }
+            users.add(user);
+        }
+
+        RecommendationEngine engine = new RecommendationEngine(movieDatabase, ratings);
+        engine.addUsers(users);
+        return new Dataset(movieDatabase, engine, movieCount, userCount, ratings.size());
+    }
+
+    // Mean star rating per movie id, drawn around the MovieLens average of 3.5
+    private double[] movieQualities(int movieCount) {
+        Random random = new Random(seed);
+        double[] quality = new double[movieCount + 1];
+        for (int movieId = 1; movieId <= movieCount; movieId++) {
+            quality[movieId] = clamp(3.5 + random.nextGaussian() * 0.5, 1.0, 5.0);
+        }
+        return quality;
+    }
+
+    private MovieDatabase generateCatalog(int movieCount, double[] quality) {
+        Random random = new Random(seed * 31 + 17);
+        int directorCount = Math.max(1, movieCount / 5);
+        ZipfSampler directors = new ZipfSampler(random, directorCount, 0.8, false);
+
+        MovieDatabase movieDatabase = new MovieDatabase(false);
+        for (int movieId = 1; movieId <= movieCount; movieId++) {
+            String genre = GENRES[pickGenreIndex(random)];
+            String director = "Director " + directors.next();
+            // Production has grown steadily, so release years skew recent
+            int age = (int) (-Math.log(1.0 - random.nextDouble()) * 18);
+            int year = Math.max(EARLIEST_YEAR, LATEST_YEAR - age);
+            double rating = Math.round(clamp(quality[movieId] * 2, 1.0, 10.0) * 10) / 10.0;
+            movieDatabase.addMovie(new Movie(movieId, "Movie " + movieId, genre, director, year, rating,
+                    "Synthetic " + genre.toLowerCase() + " movie"));
+        }
+        return movieDatabase;
+    }
+
+    // Lognormal ratings per user, scaled so the total lands near ratingCount
+    private static int[] userActivity(Random random, int movieCount, int userCount, long ratingCount) {
+        int cap = Math.max(1, movieCount / 4);
+        int floor = (int) Math.min(Math.min(MIN_RATINGS_PER_USER, cap), ratingCount / userCount);
+        double[] weights = new double[userCount];
+        double total = 0.0;
+        for (int i = 0; i < userCount; i++) {
+            weights[i] = Math.exp(random.nextGaussian() * ACTIVITY_SIGMA);
+            total += weights[i];
+        }
+
+        long remaining = ratingCount - (long) floor * userCount;
+        int[] activity = new int[userCount];
+        for (int i = 0; i < userCount; i++) {
+            long extra = Math.round(remaining * weights[i] / total);
+            activity[i] = (int) Math.min(cap, floor + extra);
+        }
+        return activity;
+    }
+
+    // Distinct movies for one user by popularity, sorted by id
+    private static int[] pickMovies(Random random, ZipfSampler popularity, int[] chosen, int userId, int count) {
+        int[] movieIds = new int[count];
+        int size = 0;
+        // Heavy raters exhaust the head of the distribution, so give up on draws eventually
+        long attempts = 20L * count + 100;
+        while (size < count && attempts-- > 0) {
+            int movieId = popularity.next();
+            if (chosen[movieId] != userId) {
+                chosen[movieId] = userId;
+                movieIds[size++] = movieId;
+            }
+        }
+        for (int movieId = 1 + random.nextInt(chosen.length - 1); size < count; movieId = movieId % (chosen.length - 1) + 1) {
+            if (chosen[movieId] != userId) {
+                chosen[movieId] = userId;
+                movieIds[size++] = movieId;
+            }
+        }
+        Arrays.sort(movieIds);
+        return movieIds;
+    }
+
+    private static List<String> pickGenres(Random random, int count) {
+        List<String> genres = new ArrayList<>(count);
+        while (genres.size() < count) {
+            String genre = GENRES[pickGenreIndex(random)];
+            if (!genres.contains(genre)) {
+                genres.add(genre);
+            }
+        }
+        return genres;
+    }
+
+    private static int pickGenreIndex(Random random) {
+        double total = 0.0;
+        for (double weight : GENRE_WEIGHTS) {
+            total += weight;
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < GENRE_WEIGHTS.length; i++) {
+            target -= GENRE_WEIGHTS[i];
+            if (target < 0) return i;
+        }
+        return GENRE_WEIGHTS.length - 1;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // Draws ranks 1..n with probability proportional to 1 / rank^exponent
+    private static final class ZipfSampler {
+        private final Random random;
+        private final double[] cumulative;
+        private final int[] idByRank;
+
+        ZipfSampler(Random random, int n, double exponent, boolean shuffleIds) {
+            this.random = random;
+            this.cumulative = new double[n];
+            double sum = 0.0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1.0 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+
+            // Shuffle which id gets which rank, so popularity does not follow id order
+            this.idByRank = new int[n];
+            for (int i = 0; i < n; i++) {
+                idByRank[i] = i + 1;
+            }
+            if (shuffleIds) {
+                for (int i = n - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = idByRank[i];
+                    idByRank[i] = idByRank[j];
+                    idByRank[j] = swap;
+                }
+            }
+        }
+
+        int next() {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, target);
+            return idByRank[index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1)];
+        }
+    }
+}
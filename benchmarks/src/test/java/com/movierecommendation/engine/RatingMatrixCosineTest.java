@@ -0,0 +1,120 @@
+package com.movierecommendation.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * RatingMatrix.cosine against a naive cosine that intersects the two users'
+ * movie sets, on seeded random rows. Rows of similar length go through the
+ * merge join, rows more than 16x apart through the binary search probe.
+ */
+class RatingMatrixCosineTest {
+    private static final double EPSILON = 1e-12;
+    private static final int MOVIES = 5000;
+
+    private final RatingMatrix matrix = new RatingMatrix();
+    private final Map<Integer, Map<Integer, Float>> rows = new TreeMap<>();
+    private final Random random = new Random(42);
+
+    @Test
+    void mergeJoinMatchesNaiveCosine() {
+        for (int pair = 0; pair < 500; pair++) {
+            int size1 = 1 + random.nextInt(300);
+            int size2 = size1 + random.nextInt(size1 * 4);
+            assertMatches(randomRow(size1), randomRow(size2));
+        }
+    }
+
+    @Test
+    void probeMatchesNaiveCosine() {
+        for (int pair = 0; pair < 500; pair++) {
+            int size1 = 1 + random.nextInt(20);
+            int size2 = size1 * 17 + random.nextInt(2000);
+            assertMatches(randomRow(size1), randomRow(size2));
+        }
+    }
+
+    @Test
+    void emptyRowsHaveZeroSimilarity() {
+        int empty = addRow(new TreeMap<>());
+        int other = randomRow(50);
+        assertEquals(0.0, matrix.cosine(empty, other));
+        assertEquals(0.0, matrix.cosine(other, empty));
+        assertEquals(0.0, matrix.cosine(empty, empty));
+        // Never seen by the matrix at all
+        assertEquals(0.0, matrix.cosine(other, 1_000_000));
+    }
+
+    @Test
+    void disjointRowsHaveZeroSimilarity() {
+        Map<Integer, Float> evens = new TreeMap<>();
+        Map<Integer, Float> odds = new TreeMap<>();
+        for (int movieId = 1; movieId <= 2000; movieId++) {
+            (movieId % 2 == 0 ? evens : odds).put(movieId, rating());
+        }
+        int short1 = addRow(new TreeMap<>(Map.of(2, 4.0f, 4, 3.5f)));
+        int long1 = addRow(odds);
+        int long2 = addRow(evens);
+        // Probe path, then merge path
+        assertEquals(0.0, matrix.cosine(short1, long1));
+        assertEquals(0.0, matrix.cosine(long1, long2));
+    }
+
+    @Test
+    void rowWithItselfHasSimilarityOne() {
+        int user = randomRow(200);
+        assertEquals(1.0, matrix.cosine(user, user), EPSILON);
+    }
+
+    private void assertMatches(int user1, int user2) {
+        double expected = naiveCosine(rows.get(user1), rows.get(user2));
+        assertEquals(expected, matrix.cosine(user1, user2), EPSILON, "users " + user1 + " and " + user2);
+        assertEquals(expected, matrix.cosine(user2, user1), EPSILON, "users " + user2 + " and " + user1);
+    }
+
+    // Cosine over the co-rated movies, each side normalized by its co-rated ratings
+    private static double naiveCosine(Map<Integer, Float> row1, Map<Integer, Float> row2) {
+        TreeSet<Integer> common = new TreeSet<>(row1.keySet());
+        common.retainAll(row2.keySet());
+        double dotProduct = 0.0;
+        double norm1 = 0.0;
+        double norm2 = 0.0;
+        for (int movieId : common) {
+            double rating1 = row1.get(movieId);
+            double rating2 = row2.get(movieId);
+            dotProduct += rating1 * rating2;
+            norm1 += rating1 * rating1;
+            norm2 += rating2 * rating2;
+        }
+        if (norm1 == 0.0 || norm2 == 0.0) return 0.0;
+        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    }
+
+    private int randomRow(int size) {
+        Map<Integer, Float> row = new TreeMap<>();
+        while (row.size() < Math.min(size, MOVIES)) {
+            row.put(1 + random.nextInt(MOVIES), rating());
+        }
+        return addRow(row);
+    }
+
+    private int addRow(Map<Integer, Float> row) {
+        int userId = rows.size() + 1;
+        rows.put(userId, row);
+        // Out of movie id order, as ratings arrive
+        row.entrySet().stream()
+           .sorted((a, b) -> Integer.compare(a.getKey() * 7919 % MOVIES, b.getKey() * 7919 % MOVIES))
+           .forEach(entry -> matrix.set(userId, entry.getKey(), entry.getValue()));
+        return userId;
+    }
+
+    // Half stars from 0.5 to 5
+    private float rating() {
+        return (1 + random.nextInt(10)) * 0.5f;
+    }
+}
@@ -0,0 +1,103 @@
+// ApiLoadTest.java
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load generator for the web API. Each of N client threads
+ * sends requests back to back, cycling through the given paths, and the run
+ * reports throughput and latency percentiles after a warmup.
+ *
+ *   java ApiLoadTest http://localhost:5500 64 30 /api/movies/1/similar /api/recommendations?user_id=1
+ */
+public class ApiLoadTest {
+    private static final int WARMUP_SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: java ApiLoadTest <base-url> <concurrency> <seconds> <path> [<path>...]");
+            System.exit(1);
+        }
+        String baseUrl = args[0];
+        int concurrency = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+        List<URI> targets = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            targets.add(URI.create(baseUrl + args[i]));
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newFixedThreadPool(4))
+            .build();
+
+        System.out.printf("Warming up for %d s...%n", WARMUP_SECONDS);
+        run(client, targets, concurrency, WARMUP_SECONDS);
+        Result result = run(client, targets, concurrency, seconds);
+
+        long[] latencies = result.latencies;
+        Arrays.sort(latencies);
+        System.out.printf("%d clients, %d s: %,d requests, %d errors, %.1f req/s%n",
+                          concurrency, seconds, latencies.length, result.errors, latencies.length / (double) seconds);
+        System.out.printf("latency ms: p50 %.2f  p90 %.2f  p99 %.2f  max %.2f%n",
+                          percentile(latencies, 0.50), percentile(latencies, 0.90),
+                          percentile(latencies, 0.99), percentile(latencies, 1.0));
+        System.exit(0);
+    }
+
+    private static class Result {
+        long[] latencies;
+        long errors;
+    }
+
+    private static Result run(HttpClient client, List<URI> targets, int concurrency, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        LongAdder errors = new LongAdder();
+        List<long[]> perClient = new CopyOnWriteArrayList<>();
+        List<Thread> clients = new ArrayList<>();
+
+        for (int c = 0; c < concurrency; c++) {
+            int offset = c;
+            Thread thread = new Thread(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                for (int i = offset; System.nanoTime() < deadline; i++) {
+                    HttpRequest request = HttpRequest.newBuilder(targets.get(i % targets.size()))
+                        .timeout(Duration.ofSeconds(30)).GET().build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) errors.increment();
+                    } catch (Exception e) {
+                        errors.increment();
+                        continue;
+                    }
+                    if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                perClient.add(Arrays.copyOf(latencies, count));
+            });
+            clients.add(thread);
+            thread.start();
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+
+        Result result = new Result();
+        result.latencies = perClient.stream().flatMapToLong(Arrays::stream).toArray();
+        result.errors = errors.sum();
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
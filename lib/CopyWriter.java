@@ -0,0 +1,61 @@
+// CopyWriter.java
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * Buffers rows in COPY text format and ships them in fixed-size chunks.
+ */
+class CopyWriter {
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+
+    private final CopyIn copyIn;
+    private final StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+    private boolean firstField = true;
+
+    CopyWriter(CopyIn copyIn) {
+        this.copyIn = copyIn;
+    }
+
+    CopyWriter field(String value) {
+        if (!firstField) buffer.append('\t');
+        firstField = false;
+        if (value == null) {
+            buffer.append("\\N");
+            return this;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '\t' -> buffer.append("\\t");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                default -> buffer.append(c);
+            }
+        }
+        return this;
+    }
+
+    void endRow() throws SQLException {
+        buffer.append('\n');
+        firstField = true;
+        if (buffer.length() >= COPY_BUFFER_CHARS) flush();
+    }
+
+    void finish() throws SQLException {
+        flush();
+        copyIn.endCopy();
+    }
+
+    void cancelIfActive() throws SQLException {
+        if (copyIn.isActive()) copyIn.cancelCopy();
+    }
+
+    private void flush() throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
@@ -1,40 +1,160 @@
 // DatabaseConnection.java
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import config.DatabaseConfig;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:postgresql://localhost:5432/movie_db";
-    private static final String USERNAME = "postgres"; // Change to your PostgreSQL username
-    private static final String PASSWORD = "Huruma@2025"; // Change to your PostgreSQL password
+    private static final PoolMetrics poolMetrics = new PoolMetrics();
     
-    private static Connection connection;
+    private static volatile HikariDataSource dataSource;
     
-    public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                Class.forName("org.postgresql.Driver");
-                connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-                System.out.println("Database connected successfully!");
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("PostgreSQL JDBC Driver not found", e);
+    // HikariCP pool configured from DatabaseConfig (application.properties, overridden by .env)
+    public static DataSource getDataSource() {
+        HikariDataSource current = dataSource;
+        if (current == null || current.isClosed()) {
+            synchronized (DatabaseConnection.class) {
+                if (dataSource == null || dataSource.isClosed()) {
+                    dataSource = createDataSource();
+                    System.out.println("Database connection pool started (max " + dataSource.getMaximumPoolSize() + " connections)");
+                }
+                current = dataSource;
             }
         }
-        return connection;
+        return current;
     }
     
-    public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
+    // Borrows a pooled connection; closing it hands it back to the pool
+    public static Connection getConnection() throws SQLException {
+        return getDataSource().getConnection();
+    }
+    
+    public static void closePool() {
+        synchronized (DatabaseConnection.class) {
+            if (dataSource != null && !dataSource.isClosed()) {
+                dataSource.close();
+                System.out.println("Database connection pool closed.");
             }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+        }
+    }
+    
+    private static HikariDataSource createDataSource() {
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName("movie-db");
+        hikari.setDriverClassName(DatabaseConfig.getDriver());
+        hikari.setJdbcUrl(DatabaseConfig.getUrl());
+        hikari.setUsername(DatabaseConfig.getUsername());
+        hikari.setPassword(DatabaseConfig.getPassword());
+        
+        hikari.setMaximumPoolSize(DatabaseConfig.getPoolMaximumSize());
+        hikari.setMinimumIdle(Math.min(DatabaseConfig.getPoolMinimumIdle(), DatabaseConfig.getPoolMaximumSize()));
+        hikari.setConnectionTimeout(DatabaseConfig.getPoolConnectionTimeoutMs());
+        hikari.setIdleTimeout(DatabaseConfig.getPoolIdleTimeoutMs());
+        hikari.setMaxLifetime(DatabaseConfig.getPoolMaxLifetimeMs());
+        hikari.setLeakDetectionThreshold(DatabaseConfig.getPoolLeakDetectionThresholdMs());
+        
+        // pgjdbc caches statements per connection; prepared ones skip parse and plan on reuse
+        hikari.addDataSourceProperty("prepareThreshold", DatabaseConfig.getPrepareThreshold());
+        hikari.addDataSourceProperty("preparedStatementCacheQueries", DatabaseConfig.getStatementCacheQueries());
+        hikari.addDataSourceProperty("preparedStatementCacheSizeMiB", DatabaseConfig.getStatementCacheSizeMiB());
+        
+        hikari.setMetricsTrackerFactory(poolMetrics);
+        hikari.setRegisterMbeans(true);
+        return new HikariDataSource(hikari);
+    }
+    
+    // For long-running work such as bulk imports, which would otherwise be reported as leaks
+    static void setLeakDetectionThreshold(long thresholdMs) {
+        ((HikariDataSource) getDataSource()).setLeakDetectionThreshold(thresholdMs);
+    }
+    
+    /**
+     * Current pool gauges plus acquire and usage statistics since startup.
+     * Times are in milliseconds.
+     */
+    public static Map<String, Number> getPoolMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        HikariDataSource current = dataSource;
+        HikariPoolMXBean pool = current != null && !current.isClosed() ? current.getHikariPoolMXBean() : null;
+        metrics.put("active", pool != null ? pool.getActiveConnections() : 0);
+        metrics.put("idle", pool != null ? pool.getIdleConnections() : 0);
+        metrics.put("total", pool != null ? pool.getTotalConnections() : 0);
+        metrics.put("waiting", pool != null ? pool.getThreadsAwaitingConnection() : 0);
+        metrics.put("maxSize", current != null ? current.getMaximumPoolSize() : 0);
+        poolMetrics.snapshotInto(metrics);
+        return metrics;
+    }
+    
+    // Collects HikariCP's acquire/usage callbacks in lock-free counters
+    private static class PoolMetrics implements MetricsTrackerFactory, IMetricsTracker {
+        private final LongAdder acquisitions = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAccumulator maxAcquireNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder usages = new LongAdder();
+        private final LongAdder usageMillis = new LongAdder();
+        private final LongAccumulator maxUsageMillis = new LongAccumulator(Long::max, 0);
+        private final LongAdder timeouts = new LongAdder();
+        
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            return this;
+        }
+        
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquisitions.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+        }
+        
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usages.increment();
+            usageMillis.add(elapsedBorrowedMillis);
+            maxUsageMillis.accumulate(elapsedBorrowedMillis);
+        }
+        
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+        
+        void snapshotInto(Map<String, Number> metrics) {
+            long acquired = acquisitions.sum();
+            long used = usages.sum();
+            metrics.put("acquisitions", acquired);
+            metrics.put("acquireTimeAvgMs", acquired > 0 ? acquireNanos.sum() / 1e6 / acquired : 0.0);
+            metrics.put("acquireTimeMaxMs", maxAcquireNanos.get() / 1e6);
+            metrics.put("usageTimeAvgMs", used > 0 ? (double) usageMillis.sum() / used : 0.0);
+            metrics.put("usageTimeMaxMs", maxUsageMillis.get());
+            metrics.put("timeouts", timeouts.sum());
         }
     }
     
     // Initialize database tables
     public static void initializeDatabase() {
+        try {
+            initializeSchema();
+            System.out.println("Database tables created successfully!");
+            
+            // Insert sample data if tables are empty
+            insertSampleData();
+            
+        } catch (SQLException e) {
+            System.err.println("Error initializing database: " + e.getMessage());
+        }
+    }
+    
+    // Create tables and indexes that do not exist yet
+    public static void initializeSchema() throws SQLException {
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
             
@@ -77,26 +197,66 @@ public class DatabaseConnection {
                     user_id INTEGER REFERENCES users(user_id),
                     movie_id INTEGER REFERENCES movies(id),
                     rating DECIMAL(3,1) NOT NULL,
+                    review TEXT,
                     rated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                     UNIQUE(user_id, movie_id)
                 )
             """;
             
+            // Precomputed GET /api/recommendations lists: movie JSON in order, best first
+            String createUserRecommendationsTable = """
+                CREATE TABLE IF NOT EXISTS user_recommendations (
+                    user_id INTEGER PRIMARY KEY,
+                    list_size INTEGER NOT NULL,
+                    movie_ids INTEGER[] NOT NULL,
+                    movies TEXT[] NOT NULL,
+                    computed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                )
+            """;
+            
+            // Precompute runs and the user id ranges each has finished, for resuming
+            String createRecommendationRunsTable = """
+                CREATE TABLE IF NOT EXISTS recommendation_runs (
+                    run_id SERIAL PRIMARY KEY,
+                    list_size INTEGER NOT NULL,
+                    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    finished_at TIMESTAMP
+                )
+            """;
+            String createRecommendationRunRangesTable = """
+                CREATE TABLE IF NOT EXISTS recommendation_run_ranges (
+                    run_id INTEGER REFERENCES recommendation_runs(run_id),
+                    range_start INTEGER NOT NULL,
+                    users INTEGER NOT NULL,
+                    finished_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                    PRIMARY KEY (run_id, range_start)
+                )
+            """;
+            
             stmt.execute(createMoviesTable);
             stmt.execute(createUsersTable);
             stmt.execute(createFavoriteGenresTable);
             stmt.execute(createRatingsTable);
+            // Tables created before reviews were stored
+            stmt.execute("ALTER TABLE user_movie_ratings ADD COLUMN IF NOT EXISTS review TEXT");
+            stmt.execute(createUserRecommendationsTable);
+            stmt.execute(createRecommendationRunsTable);
+            stmt.execute(createRecommendationRunRangesTable);
             
-            System.out.println("Database tables created successfully!");
-            
-            // Insert sample data if tables are empty
-            insertSampleData();
-            
-        } catch (SQLException e) {
-            System.err.println("Error initializing database: " + e.getMessage());
+            createIndexes(stmt);
         }
     }
     
+    // Range indexes: year, genre and rating lookups seek straight to the range and
+    // read rows already best rated first, so ORDER BY rating DESC needs no sort step
+    static void createIndexes(Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_movies_year_rating ON movies (year, rating DESC, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_movies_rating ON movies (rating DESC, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_movies_genre_rating ON movies (genre, rating DESC, id)");
+        // Ratings of one movie; lookups by user use the (user_id, movie_id) unique index
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_user_movie_ratings_movie ON user_movie_ratings (movie_id, user_id)");
+    }
+    
     private static void insertSampleData() {
         try (Connection conn = getConnection()) {
             // Check if movies table is empty
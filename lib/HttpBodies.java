@@ -0,0 +1,218 @@
+// HttpBodies.java
+import com.sun.net.httpserver.HttpExchange;
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes response bodies with content-hash ETags, If-None-Match handling and
+ * gzip negotiated from Accept-Encoding. Each representation has its own ETag:
+ * the gzip one is the plain one with a "-gzip" suffix, and either matches a
+ * conditional request for the same content.
+ */
+public class HttpBodies {
+    // Smaller bodies go out as they are; gzip would barely shrink them
+    static final int MIN_GZIP_SIZE = 1024;
+    // Streamed bodies up to this size are buffered, so they get an ETag and a length
+    static final int MAX_BUFFERED_SIZE = 256 * 1024;
+
+    /**
+     * A body encoded once, for content that does not change while the server
+     * runs: its plain and gzip bytes and its ETag.
+     */
+    public static class Encoded {
+        final byte[] identity;
+        final byte[] gzip;
+        final String etag;
+
+        public Encoded(byte[] identity) {
+            this.identity = identity;
+            this.gzip = identity.length >= MIN_GZIP_SIZE ? gzip(identity) : null;
+            this.etag = etag(identity);
+        }
+    }
+
+    /**
+     * Sends a body encoded on the fly. Only 200 responses carry an ETag and can
+     * turn into a 304.
+     */
+    public static void send(HttpExchange exchange, int status, String contentType, String cacheControl, byte[] body) throws IOException {
+        if (status != 200) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+            write(exchange, status, body);
+            return;
+        }
+        String etag = etag(body);
+        boolean gzip = body.length >= MIN_GZIP_SIZE && acceptsGzip(exchange);
+        if (notModified(exchange, etag, gzip, cacheControl)) return;
+
+        setHeaders(exchange, contentType, cacheControl, gzip ? gzipTag(etag) : etag, gzip);
+        write(exchange, 200, gzip ? gzip(body) : body);
+    }
+
+    /** Sends a precomputed body with status 200. */
+    public static void send(HttpExchange exchange, String contentType, String cacheControl, Encoded body) throws IOException {
+        boolean gzip = body.gzip != null && acceptsGzip(exchange);
+        if (notModified(exchange, body.etag, gzip, cacheControl)) return;
+
+        setHeaders(exchange, contentType, cacheControl, gzip ? gzipTag(body.etag) : body.etag, gzip);
+        write(exchange, 200, gzip ? body.gzip : body.identity);
+    }
+
+    /**
+     * Starts a 200 with chunked encoding, gzipped if the client accepts it, for
+     * bodies of any size written while they are produced. No ETag is possible.
+     */
+    public static OutputStream openStream(HttpExchange exchange, String contentType, String cacheControl) throws IOException {
+        boolean gzip = acceptsGzip(exchange);
+        setHeaders(exchange, contentType, cacheControl, null, gzip);
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        // Sync flush, so flush() pushes out what has been compressed so far
+        return gzip ? new GZIPOutputStream(body, 8192, true) : body;
+    }
+
+    /**
+     * A 200 body written as it is produced. It is held in memory up to
+     * MAX_BUFFERED_SIZE and sent with send() on close, but only once the
+     * writer has called complete(); closed without it, the buffer is dropped
+     * and nothing is sent, so the caller can still answer with an error. A
+     * larger body switches to openStream() and loses its ETag, but keeps
+     * memory flat. Its status is out by then, so a failure can only cut it short.
+     */
+    public static Body open(HttpExchange exchange, String contentType, String cacheControl) {
+        return new Body(exchange, contentType, cacheControl);
+    }
+
+    /** The stream open() returns. */
+    public static class Body extends OutputStream {
+        private final HttpExchange exchange;
+        private final String contentType;
+        private final String cacheControl;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        private OutputStream stream;
+        private boolean complete;
+
+        private Body(HttpExchange exchange, String contentType, String cacheControl) {
+            this.exchange = exchange;
+            this.contentType = contentType;
+            this.cacheControl = cacheControl;
+        }
+
+        /** Marks the body as fully written, so close() sends it. */
+        public void complete() {
+            complete = true;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (stream == null && buffer.size() + length > MAX_BUFFERED_SIZE) {
+                stream = openStream(exchange, contentType, cacheControl);
+                buffer.writeTo(stream);
+                buffer = null;
+            }
+            if (stream != null) {
+                stream.write(bytes, offset, length);
+            } else {
+                buffer.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stream != null) {
+                stream.close();
+            } else if (buffer != null) {
+                byte[] body = buffer.toByteArray();
+                buffer = null;
+                if (complete) {
+                    send(exchange, 200, contentType, cacheControl, body);
+                }
+            }
+        }
+    }
+
+    private static boolean notModified(HttpExchange exchange, String etag, boolean gzip, String cacheControl) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null || !matches(ifNoneMatch, etag)) {
+            return false;
+        }
+        exchange.getResponseHeaders().set("ETag", gzip ? gzipTag(etag) : etag);
+        exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return true;
+    }
+
+    // Weak comparison, as If-None-Match requires; either representation's tag matches
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) return true;
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag) || tag.equals(gzipTag(etag))) return true;
+        }
+        return false;
+    }
+
+    // gzip listed in Accept-Encoding without q=0
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static void setHeaders(HttpExchange exchange, String contentType, String cacheControl, String etag, boolean gzip) {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (etag != null) exchange.getResponseHeaders().set("ETag", etag);
+        if (gzip) exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+    }
+
+    private static void write(HttpExchange exchange, int status, byte[] body) throws IOException {
+        // Length 0 would mean chunked; -1 is an empty body
+        exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String gzipTag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
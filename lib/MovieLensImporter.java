@@ -0,0 +1,408 @@
+// MovieLensImporter.java
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk importer for MovieLens-format movies.csv and ratings.csv files. Both
+ * files are streamed line by line, so memory use does not grow with file size.
+ *
+ *   java MovieLensImporter db <dir> [--truncate]   load PostgreSQL with COPY
+ *   java MovieLensImporter memory <dir>            load MovieDatabase and RecommendationEngine
+ *
+ * MovieLens has no directors, catalog ratings or user names. Movies get the
+ * director "Unknown", their first listed genre, the year from the title, and
+ * a 0-10 rating of twice their mean star rating. Users are named "User {id}".
+ */
+public class MovieLensImporter {
+    private static final Pattern TITLE_YEAR = Pattern.compile("^(.*?)\\s*\\((\\d{4})\\)\\s*$");
+    private static final long PROGRESS_INTERVAL = 1_000_000;
+
+    public static void main(String[] args) {
+        if (args.length < 2 || !("db".equals(args[0]) || "memory".equals(args[0]))) {
+            System.err.println("Usage: java MovieLensImporter db|memory <movielens-dir> [--truncate]");
+            System.exit(1);
+        }
+        Path moviesFile = Paths.get(args[1], "movies.csv");
+        Path ratingsFile = Paths.get(args[1], "ratings.csv");
+        boolean truncate = args.length > 2 && "--truncate".equals(args[2]);
+
+        resetPeakHeap();
+        long start = System.nanoTime();
+        try {
+            if ("db".equals(args[0])) {
+                importIntoDatabase(moviesFile, ratingsFile, truncate);
+            } else {
+                importIntoMemory(moviesFile, ratingsFile);
+            }
+        } catch (IOException | SQLException e) {
+            System.err.println("Import failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.out.printf("Import finished in %.1f s, peak heap %d MB%n",
+                          (System.nanoTime() - start) / 1e9, peakHeapBytes() / (1024 * 1024));
+    }
+
+    // ---- PostgreSQL ----
+
+    /**
+     * Loads the files with COPY FROM STDIN in one transaction. The rating table's
+     * indexes and foreign keys are dropped for the load and rebuilt afterwards,
+     * which is far cheaper than maintaining them row by row.
+     */
+    static void importIntoDatabase(Path moviesFile, Path ratingsFile, boolean truncate) throws IOException, SQLException {
+        DatabaseConnection.initializeSchema();
+        // The load holds one connection for minutes, which is not a leak
+        DatabaseConnection.setLeakDetectionThreshold(0);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                loadDatabase(conn, stmt, moviesFile, ratingsFile, truncate);
+            } catch (IOException | SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } finally {
+            DatabaseConnection.closePool();
+        }
+    }
+
+    private static void loadDatabase(Connection conn, Statement stmt, Path moviesFile, Path ratingsFile, boolean truncate)
+            throws IOException, SQLException {
+        if (truncate) {
+            stmt.execute("TRUNCATE user_movie_ratings, user_favorite_genres, users, movies RESTART IDENTITY");
+        } else if (hasRows(stmt, "movies") || hasRows(stmt, "users")) {
+            throw new SQLException("Tables already hold data; pass --truncate to replace it");
+        }
+
+        dropLoadIndexes(stmt);
+        CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+
+        long phaseStart = System.nanoTime();
+        long movies = copyMovies(copyManager, moviesFile);
+        report("movies", movies, phaseStart);
+
+        phaseStart = System.nanoTime();
+        BitSet userIds = new BitSet();
+        long ratings = copyRatings(copyManager, ratingsFile, userIds);
+        report("ratings", ratings, phaseStart);
+
+        phaseStart = System.nanoTime();
+        long users = copyUsers(copyManager, userIds);
+        report("users", users, phaseStart);
+
+        phaseStart = System.nanoTime();
+        createLoadIndexes(stmt);
+        // Catalog rating on the 0-10 scale, from the mean star rating
+        stmt.executeUpdate("""
+            UPDATE movies m SET rating = LEAST(ROUND(r.avg_rating * 2, 1), 10)
+            FROM (SELECT movie_id, AVG(rating) AS avg_rating FROM user_movie_ratings GROUP BY movie_id) r
+            WHERE m.id = r.movie_id
+        """);
+        stmt.execute("SELECT setval(pg_get_serial_sequence('movies', 'id'), COALESCE(MAX(id), 1)) FROM movies");
+        stmt.execute("SELECT setval(pg_get_serial_sequence('users', 'user_id'), COALESCE(MAX(user_id), 1)) FROM users");
+        conn.commit();
+        System.out.printf("Indexes, constraints and movie ratings built in %.1f s%n", (System.nanoTime() - phaseStart) / 1e9);
+
+        conn.setAutoCommit(true);
+        stmt.execute("ANALYZE movies");
+        stmt.execute("ANALYZE users");
+        stmt.execute("ANALYZE user_movie_ratings");
+    }
+
+    private static boolean hasRows(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT EXISTS (SELECT 1 FROM " + table + ")")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private static void dropLoadIndexes(Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE user_movie_ratings DROP CONSTRAINT IF EXISTS user_movie_ratings_user_id_fkey");
+        stmt.execute("ALTER TABLE user_movie_ratings DROP CONSTRAINT IF EXISTS user_movie_ratings_movie_id_fkey");
+        stmt.execute("ALTER TABLE user_movie_ratings DROP CONSTRAINT IF EXISTS user_movie_ratings_user_id_movie_id_key");
+        stmt.execute("ALTER TABLE user_movie_ratings DROP CONSTRAINT IF EXISTS user_movie_ratings_pkey");
+        stmt.execute("DROP INDEX IF EXISTS idx_movies_year_rating");
+        stmt.execute("DROP INDEX IF EXISTS idx_movies_rating");
+        stmt.execute("DROP INDEX IF EXISTS idx_movies_genre_rating");
+        stmt.execute("DROP INDEX IF EXISTS idx_user_movie_ratings_movie");
+    }
+
+    private static void createLoadIndexes(Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE user_movie_ratings ADD CONSTRAINT user_movie_ratings_pkey PRIMARY KEY (id)");
+        stmt.execute("ALTER TABLE user_movie_ratings ADD CONSTRAINT user_movie_ratings_user_id_movie_id_key UNIQUE (user_id, movie_id)");
+        stmt.execute("ALTER TABLE user_movie_ratings ADD CONSTRAINT user_movie_ratings_user_id_fkey FOREIGN KEY (user_id) REFERENCES users(user_id)");
+        stmt.execute("ALTER TABLE user_movie_ratings ADD CONSTRAINT user_movie_ratings_movie_id_fkey FOREIGN KEY (movie_id) REFERENCES movies(id)");
+        DatabaseConnection.createIndexes(stmt);
+    }
+
+    private static long copyMovies(CopyManager copyManager, Path moviesFile) throws IOException, SQLException {
+        CopyWriter out = new CopyWriter(copyManager.copyIn(
+            "COPY movies (id, title, genre, director, year, rating, description) FROM STDIN"));
+        long rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(moviesFile, StandardCharsets.UTF_8)) {
+            reader.readLine(); // header
+            List<String> fields = new ArrayList<>(3);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                MovieRow movie = MovieRow.parse(line, fields);
+                out.field(Integer.toString(movie.id)).field(movie.title).field(movie.genre)
+                   .field("Unknown").field(Integer.toString(movie.year)).field("0").field(movie.description)
+                   .endRow();
+                rows++;
+            }
+            out.finish();
+        } finally {
+            out.cancelIfActive();
+        }
+        return rows;
+    }
+
+    private static long copyRatings(CopyManager copyManager, Path ratingsFile, BitSet userIds) throws IOException, SQLException {
+        CopyWriter out = new CopyWriter(copyManager.copyIn(
+            "COPY user_movie_ratings (user_id, movie_id, rating, rated_at) FROM STDIN"));
+        long rows = 0;
+        long intervalStart = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(ratingsFile, StandardCharsets.UTF_8)) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                RatingRow rating = RatingRow.parse(line);
+                userIds.set(rating.userId);
+                out.field(Integer.toString(rating.userId)).field(Integer.toString(rating.movieId))
+                   .field(rating.rating)
+                   .field(LocalDateTime.ofEpochSecond(rating.timestamp, 0, ZoneOffset.UTC).toString())
+                   .endRow();
+                if (++rows % PROGRESS_INTERVAL == 0) {
+                    report("  ratings", PROGRESS_INTERVAL, intervalStart);
+                    intervalStart = System.nanoTime();
+                }
+            }
+            out.finish();
+        } finally {
+            out.cancelIfActive();
+        }
+        return rows;
+    }
+
+    private static long copyUsers(CopyManager copyManager, BitSet userIds) throws SQLException {
+        CopyWriter out = new CopyWriter(copyManager.copyIn("COPY users (user_id, name) FROM STDIN"));
+        long rows = 0;
+        try {
+            for (int userId = userIds.nextSetBit(0); userId >= 0; userId = userIds.nextSetBit(userId + 1)) {
+                out.field(Integer.toString(userId)).field("User " + userId).endRow();
+                rows++;
+            }
+            out.finish();
+        } finally {
+            out.cancelIfActive();
+        }
+        return rows;
+    }
+
+    // ---- In memory ----
+
+    /**
+     * Streams ratings straight into a RatingMatrix, then the catalog into a
+     * MovieDatabase, and hands both to a RecommendationEngine in one bulk step.
+     */
+    static RecommendationEngine importIntoMemory(Path moviesFile, Path ratingsFile) throws IOException {
+        long phaseStart = System.nanoTime();
+        RatingMatrix ratings = new RatingMatrix();
+        long rows = 0;
+        long intervalStart = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(ratingsFile, StandardCharsets.UTF_8)) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                RatingRow rating = RatingRow.parse(line);
+                // MovieLens allows half a star; the engine's scale starts at one
+                ratings.set(rating.userId, rating.movieId, Math.max(1.0f, Float.parseFloat(rating.rating)));
+                if (++rows % PROGRESS_INTERVAL == 0) {
+                    report("  ratings", PROGRESS_INTERVAL, intervalStart);
+                    intervalStart = System.nanoTime();
+                }
+            }
+        }
+        report("ratings", rows, phaseStart);
+
+        phaseStart = System.nanoTime();
+        MovieDatabase movieDatabase = new MovieDatabase(false);
+        rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(moviesFile, StandardCharsets.UTF_8)) {
+            reader.readLine(); // header
+            List<String> fields = new ArrayList<>(3);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                MovieRow movie = MovieRow.parse(line, fields);
+                movieDatabase.addMovie(new Movie(movie.id, movie.title, movie.genre, "Unknown", movie.year,
+                                                 catalogRating(ratings, movie.id), movie.description));
+                rows++;
+            }
+        }
+        report("movies", rows, phaseStart);
+
+        phaseStart = System.nanoTime();
+        List<User> users = new ArrayList<>();
+        for (int userId = 0; userId < ratings.userIdBound(); userId++) {
+            if (ratings.rowSize(userId) > 0) {
+                users.add(new User(userId, "User " + userId, ratings));
+            }
+        }
+        RecommendationEngine engine = new RecommendationEngine(movieDatabase, ratings);
+        engine.addUsers(users);
+        System.out.printf("Registered %d users and built the item similarity model in %.1f s%n",
+                          users.size(), (System.nanoTime() - phaseStart) / 1e9);
+        return engine;
+    }
+
+    // Twice the mean star rating, on the catalog's 0-10 scale
+    private static double catalogRating(RatingMatrix ratings, int movieId) {
+        int count = ratings.columnSize(movieId);
+        if (count == 0) return 0.0;
+        float[] columnRatings = ratings.columnRatings(movieId);
+        double sum = 0.0;
+        for (int i = 0; i < count; i++) {
+            sum += columnRatings[i];
+        }
+        return Math.round(sum / count * 20) / 10.0;
+    }
+
+    // ---- Parsing ----
+
+    // movies.csv: movieId,title,genres with the title quoted when it holds commas
+    private static class MovieRow {
+        int id;
+        String title;
+        int year;
+        String genre;
+        String description;
+
+        static MovieRow parse(String line, List<String> fields) throws IOException {
+            splitCsv(line, fields);
+            if (fields.size() != 3) {
+                throw new IOException("Malformed movies.csv line: " + line);
+            }
+            MovieRow row = new MovieRow();
+            row.id = parseInt(fields.get(0), line);
+            Matcher matcher = TITLE_YEAR.matcher(fields.get(1));
+            if (matcher.matches()) {
+                row.title = matcher.group(1);
+                row.year = Integer.parseInt(matcher.group(2));
+            } else {
+                row.title = fields.get(1).trim();
+            }
+            String genres = fields.get(2);
+            if (genres.isEmpty() || genres.startsWith("(")) { // "(no genres listed)"
+                row.genre = "Unknown";
+                row.description = "";
+            } else {
+                int bar = genres.indexOf('|');
+                row.genre = bar < 0 ? genres : genres.substring(0, bar);
+                row.description = "Genres: " + genres.replace("|", ", ");
+            }
+            return row;
+        }
+    }
+
+    // ratings.csv: userId,movieId,rating,timestamp
+    private static class RatingRow {
+        int userId;
+        int movieId;
+        String rating;
+        long timestamp;
+
+        static RatingRow parse(String line) throws IOException {
+            int first = line.indexOf(',');
+            int second = line.indexOf(',', first + 1);
+            int third = line.indexOf(',', second + 1);
+            if (first < 0 || second < 0 || third < 0) {
+                throw new IOException("Malformed ratings.csv line: " + line);
+            }
+            RatingRow row = new RatingRow();
+            row.userId = parseInt(line.substring(0, first), line);
+            row.movieId = parseInt(line.substring(first + 1, second), line);
+            row.rating = line.substring(second + 1, third);
+            try {
+                row.timestamp = Long.parseLong(line.substring(third + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed ratings.csv line: " + line, e);
+            }
+            return row;
+        }
+    }
+
+    private static int parseInt(String value, String line) throws IOException {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed line: " + line, e);
+        }
+    }
+
+    // Splits one RFC 4180 line; quoted fields may hold commas and doubled quotes
+    private static void splitCsv(String line, List<String> fields) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+    }
+
+    // ---- Reporting ----
+
+    private static void report(String what, long rows, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%s: %,d rows in %.1f s (%,.0f rows/s), heap peak so far %d MB%n",
+                          what, rows, seconds, rows / Math.max(seconds, 1e-9), peakHeapBytes() / (1024 * 1024));
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    // Sum of per-pool peaks, an upper bound on the heap in use at any one moment
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
@@ -2,164 +2,481 @@
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpContext;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.movierecommendation.dao.CachingMovieDAO;
+import com.movierecommendation.dao.DataAccessException;
+import com.movierecommendation.dao.JdbcMovieDAO;
+import config.Config;
+import config.ServerConfig;
 import java.io.*;
+import java.math.BigDecimal;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.function.Supplier;
 
 public class MovieWebAPI {
     private static final int PORT = 5500;
+    // A body cut short by an error stays unterminated rather than being closed into valid JSON
+    private static final JsonFactory JSON = JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_CONTENT).build();
+    // Cache-Control of 200 responses by context path; other statuses are never stored
+    private static final Map<String, String> CACHE_CONTROL = Map.of(
+        "/api/movies", "public, max-age=300",
+        "/api/users", "no-cache",
+        "/api/recommendations", "private, no-cache",
+        "/api/recommendations/batch", "no-store",
+        "/api/ratings", "no-store",
+        "/api/metrics/pool", "no-store",
+        "/api/metrics/cache", "no-store",
+        "/api/metrics/ratings", "no-store",
+        "/api/metrics/movies", "no-store",
+        "/", "no-cache");
+    // /api/movies/{id}/similar changes with every applied rating batch, so clients revalidate with the ETag
+    private static final String SIMILAR_CACHE_CONTROL = "no-cache";
+    // Rows buffered per round trip when a result set is streamed
+    private static final int STREAM_FETCH_SIZE = 500;
+    // Rows per round trip when every rating is loaded at startup
+    private static final int LOAD_FETCH_SIZE = 10_000;
+    private static final RatingMatrix ratingMatrix = new RatingMatrix();
+    private static final ItemSimilarityModel itemSimilarityModel = new ItemSimilarityModel(ratingMatrix);
+    // Posted ratings reach the matrix and the neighbor lists through this log's single writer
+    private static final RatingEventLog ratingEvents = new RatingEventLog("similarity-updater", MovieWebAPI::applyRatingEvents);
+    // Posted ratings on their way to user_movie_ratings; saved ones go on to the similarity updater
+    private static final RatingWriteBuffer ratingWriteBuffer = new RatingWriteBuffer(
+        Config.getInstance().getRatingBufferCapacity(),
+        Config.getInstance().getRatingBufferBatchSize(),
+        Config.getInstance().getRatingBufferFlushIntervalMillis(),
+        ratingEvents::publish);
+    // Movie rows by id, read through to the movies table
+    private static final CachingMovieDAO movieCache = new CachingMovieDAO(
+        new JdbcMovieDAO(DatabaseConnection.getDataSource()),
+        Config.getInstance().getMovieCacheMaxEntries(),
+        Config.getInstance().getMovieCacheTtlSeconds() * 1000L,
+        Config.getInstance().getMovieCacheRefreshAfterSeconds() * 1000L);
+    // Rendered /api/recommendations responses by (user_id, limit)
+    private static final RecommendationCache<String> recommendationCache = new RecommendationCache<>(
+        Config.getInstance().getRecommendationCacheMaxEntries(),
+        Config.getInstance().getRecommendationCacheTtlSeconds() * 1000L);
     
     public static void main(String[] args) throws IOException {
+        // Handlers block on JDBC, so they run on an executor rather than the dispatcher thread
+        String executorMode = ServerConfig.getExecutorMode();
+        ExecutorService executor = ServerExecutors.create(executorMode, ServerConfig.getThreads(), ServerConfig.getQueueSize());
+        
         // Initialize database
         DatabaseConnection.initializeDatabase();
+        loadItemSimilarityModel();
         
         HttpServer server = HttpServer.create(new InetSocketAddress(PORT), 0);
         
         // API endpoints
-        server.createContext("/api/movies", new MoviesHandler());
-        server.createContext("/api/users", new UsersHandler());
-        server.createContext("/api/recommendations", new RecommendationsHandler());
-        server.createContext("/api/ratings", new RatingsHandler());
-        
-        // Static file handler for web interface
-        server.createContext("/", new StaticFileHandler());
+        List<HttpContext> contexts = List.of(
+            server.createContext("/api/movies", new MoviesHandler()),
+            server.createContext("/api/users", new UsersHandler()),
+            server.createContext("/api/recommendations", new RecommendationsHandler()),
+            server.createContext("/api/recommendations/batch", new BatchRecommendationsHandler()),
+            server.createContext("/api/ratings", new RatingsHandler()),
+            server.createContext("/api/metrics/pool", new MetricsHandler(DatabaseConnection::getPoolMetrics)),
+            server.createContext("/api/metrics/cache", new MetricsHandler(MovieWebAPI::getCacheMetrics)),
+            server.createContext("/api/metrics/ratings", new MetricsHandler(MovieWebAPI::getRatingEventMetrics)),
+            server.createContext("/api/metrics/movies", new MetricsHandler(movieCache::getMetrics)),
+            // Static file handler for web interface
+            server.createContext("/", new StaticFileHandler()));
+        // Requests a full pool turned away get a 503 here
+        for (HttpContext context : contexts) {
+            context.getFilters().add(ServerExecutors.overloadFilter());
+        }
         
-        server.setExecutor(null);
+        server.setExecutor(executor);
         server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            if (executor != null) executor.shutdown();
+            ratingWriteBuffer.close(5000);
+            DatabaseConnection.closePool();
+        }));
         
-        System.out.println("Movie Recommendation Server started on http://localhost:" + PORT);
+        System.out.println("Movie Recommendation Server started on http://localhost:" + PORT + " (" + executorMode + " executor)");
         System.out.println("Visit http://localhost:5500 to view the web interface");
     }
     
-    // Handler for movies API
+    private static void loadItemSimilarityModel() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            // pgjdbc only honours the fetch size inside a transaction
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.setFetchSize(LOAD_FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery("SELECT user_id, movie_id, rating FROM user_movie_ratings ORDER BY user_id, movie_id")) {
+                    while (rs.next()) {
+                        ratingMatrix.set(rs.getInt(1), rs.getInt(2), rs.getFloat(3));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading ratings for similarity model: " + e.getMessage());
+        }
+        ratingMatrix.trimToSize();
+        itemSimilarityModel.rebuild();
+    }
+    
+    /**
+     * GET /api/movies lists movies best rated first, one page at a time:
+     * {"movies": [...], "next_cursor": "..."}. Parameters, all optional:
+     * limit (default 100, at most 1000), cursor (next_cursor of the previous
+     * page), genre, year, min_year, max_year, and fields, a comma-separated
+     * subset of the movie columns. Filters, order and cursor all go into the
+     * WHERE clause, so a page is a short range scan of a (..., rating DESC, id)
+     * index. next_cursor is null on the last page.
+     */
     static class MoviesHandler implements HttpHandler {
+        private static final int DEFAULT_PAGE_SIZE = 100;
+        private static final int MAX_PAGE_SIZE = 1000;
+        private static final List<String> COLUMNS = List.of("id", "title", "genre", "director", "year", "rating", "description");
+        
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("GET".equals(exchange.getRequestMethod())) {
-                String response = getAllMoviesJSON();
-                sendResponse(exchange, response, 200);
+                String[] segments = exchange.getRequestURI().getPath().split("/");
+                
+                if (isSimilarPath(segments)) {
+                    Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                    try {
+                        int movieId = Integer.parseInt(segments[3]);
+                        int limit = Integer.parseInt(params.getOrDefault("limit", "10"));
+                        writeSimilarMovies(exchange, movieId, limit);
+                    } catch (NumberFormatException e) {
+                        sendResponse(exchange, "{\"error\":\"Invalid movie id or limit parameter\"}", 400);
+                    }
+                } else if (segments.length <= 3) {
+                    writeMoviesPage(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+                } else {
+                    sendResponse(exchange, "{\"error\":\"Not found\"}", 404);
+                }
             } else {
                 sendResponse(exchange, "Method not allowed", 405);
             }
         }
         
-        private String getAllMoviesJSON() {
-            StringBuilder json = new StringBuilder();
-            json.append("[");
+        // Path segments: "", "api", "movies"[, "{id}", "similar"]
+        static boolean isSimilarPath(String[] segments) {
+            return segments.length == 5 && "similar".equals(segments[4]);
+        }
+        
+        private void writeSimilarMovies(HttpExchange exchange, int movieId, int limit) throws IOException {
+            ItemSimilarityModel.Neighbors neighbors = itemSimilarityModel.getNeighbors(movieId);
+            int count = Math.max(0, Math.min(limit, neighbors.size()));
+            
+            List<Long> movieIds = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                movieIds.add((long) neighbors.movieId(i));
+            }
+            
+            // One lookup for all neighbors, mostly from the movie cache, then emit them in similarity order
+            Map<Long, com.movierecommendation.model.Movie> moviesById = new HashMap<>();
+            try {
+                for (com.movierecommendation.model.Movie movie : movieCache.findAllByIds(movieIds)) {
+                    moviesById.put(movie.getId(), movie);
+                }
+            } catch (DataAccessException e) {
+                System.err.println("Error fetching similar movies: " + e.getCause().getMessage());
+                sendResponse(exchange, "{\"error\":\"Could not load similar movies\"}", 500);
+                return;
+            }
+            
+            try (JsonGenerator json = openJsonResponse(exchange)) {
+                json.writeStartArray();
+                for (int i = 0; i < count; i++) {
+                    com.movierecommendation.model.Movie movie = moviesById.get((long) neighbors.movieId(i));
+                    if (movie == null) continue;
+                    json.writeStartObject();
+                    writeMovieFields(json, neighbors.movieId(i), movie.getTitle(), movie.getGenre(), movie.getDirector(),
+                                     movie.getReleaseYear(), movie.getRating().doubleValue(), movie.getDescription());
+                    json.writeNumberField("similarity", neighbors.similarity(i));
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                finishJsonResponse(json);
+            }
+        }
+        
+        private void writeMoviesPage(HttpExchange exchange, Map<String, String> params) throws IOException {
+            List<String> fields = COLUMNS;
+            if (params.containsKey("fields")) {
+                fields = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(params.get("fields").split(","))));
+                if (!COLUMNS.containsAll(fields)) {
+                    sendResponse(exchange, "{\"error\":\"fields must be a subset of " + String.join(",", COLUMNS) + "\"}", 400);
+                    return;
+                }
+            }
+            
+            // The cursor columns are always read, whatever is projected
+            Set<String> columns = new LinkedHashSet<>(List.of("id", "rating"));
+            columns.addAll(fields);
+            StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", columns)).append(" FROM movies WHERE TRUE");
+            List<Object> args = new ArrayList<>();
+            int limit;
+            try {
+                limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+                if (params.containsKey("genre")) {
+                    sql.append(" AND genre = ?");
+                    args.add(params.get("genre"));
+                }
+                if (params.containsKey("year")) {
+                    sql.append(" AND year = ?");
+                    args.add(Integer.parseInt(params.get("year")));
+                }
+                if (params.containsKey("min_year")) {
+                    sql.append(" AND year >= ?");
+                    args.add(Integer.parseInt(params.get("min_year")));
+                }
+                if (params.containsKey("max_year")) {
+                    sql.append(" AND year <= ?");
+                    args.add(Integer.parseInt(params.get("max_year")));
+                }
+                if (params.containsKey("cursor")) {
+                    // After (rating, id) in rating DESC, id order; the first bound gives the index scan its start
+                    String[] cursor = new String(Base64.getUrlDecoder().decode(params.get("cursor")), StandardCharsets.UTF_8).split(":");
+                    BigDecimal rating = new BigDecimal(cursor[0]);
+                    int id = Integer.parseInt(cursor[1]);
+                    sql.append(" AND rating <= ? AND (rating < ? OR id > ?)");
+                    args.add(rating);
+                    args.add(rating);
+                    args.add(id);
+                }
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                sendResponse(exchange, "{\"error\":\"Invalid limit, year or cursor parameter\"}", 400);
+                return;
+            }
+            if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+                sendResponse(exchange, "{\"error\":\"limit must be between 1 and " + MAX_PAGE_SIZE + "\"}", 400);
+                return;
+            }
+            // One extra row tells whether there is a next page
+            sql.append(" ORDER BY rating DESC, id LIMIT ?");
+            args.add(limit + 1);
             
             try (Connection conn = DatabaseConnection.getConnection();
-                 Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT * FROM movies ORDER BY rating DESC")) {
+                 PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < args.size(); i++) {
+                    pstmt.setObject(i + 1, args.get(i));
+                }
                 
-                boolean first = true;
-                while (rs.next()) {
-                    if (!first) json.append(",");
-                    json.append("{")
-                        .append("\"id\":").append(rs.getInt("id")).append(",")
-                        .append("\"title\":\"").append(escapeJson(rs.getString("title"))).append("\",")
-                        .append("\"genre\":\"").append(escapeJson(rs.getString("genre"))).append("\",")
-                        .append("\"director\":\"").append(escapeJson(rs.getString("director"))).append("\",")
-                        .append("\"year\":").append(rs.getInt("year")).append(",")
-                        .append("\"rating\":").append(rs.getDouble("rating")).append(",")
-                        .append("\"description\":\"").append(escapeJson(rs.getString("description"))).append("\"")
-                        .append("}");
-                    first = false;
+                try (ResultSet rs = pstmt.executeQuery();
+                     JsonGenerator json = openJsonResponse(exchange)) {
+                    json.writeStartObject();
+                    json.writeArrayFieldStart("movies");
+                    String lastKey = null;
+                    boolean hasMore = false;
+                    for (int row = 0; rs.next(); row++) {
+                        if (row == limit) {
+                            hasMore = true;
+                            break;
+                        }
+                        json.writeStartObject();
+                        for (String column : fields) {
+                            writeMovieColumn(json, rs, column);
+                        }
+                        json.writeEndObject();
+                        lastKey = rs.getBigDecimal("rating").toPlainString() + ":" + rs.getInt("id");
+                    }
+                    json.writeEndArray();
+                    json.writeStringField("next_cursor", hasMore
+                            ? Base64.getUrlEncoder().withoutPadding().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8))
+                            : null);
+                    json.writeEndObject();
+                    finishJsonResponse(json);
                 }
             } catch (SQLException e) {
                 System.err.println("Error fetching movies: " + e.getMessage());
+                sendErrorIfNotStarted(exchange, "Could not load movies");
             }
-            
-            json.append("]");
-            return json.toString();
         }
     }
     
-    // Handler for users API
-    static class UsersHandler implements HttpHandler {
+    // Runs on the rating event writer, the only thread that changes the matrix after startup
+    private static void applyRatingEvents(List<RatingEventLog.RatingEvent> batch) {
+        synchronized (ratingMatrix) {
+            for (RatingEventLog.RatingEvent event : batch) {
+                ratingMatrix.set(event.getUserId(), event.getMovieId(), (float) event.getRating());
+            }
+        }
+        itemSimilarityModel.refreshMovies(batch.stream().mapToInt(RatingEventLog.RatingEvent::getMovieId).toArray());
+    }
+    
+    private static Map<String, Number> getRatingEventMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("pending", ratingEvents.getPendingCount());
+        metrics.put("oldestPendingAgeMs", ratingEvents.getOldestPendingAgeMillis());
+        metrics.put("published", ratingEvents.getPublishedCount());
+        metrics.put("applied", ratingEvents.getAppliedCount());
+        metrics.put("version", ratingEvents.getVersion());
+        metrics.put("failedBatches", ratingEvents.getFailedBatchCount());
+        metrics.putAll(ratingWriteBuffer.getMetrics());
+        return metrics;
+    }
+    
+    private static Map<String, Number> getCacheMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("size", recommendationCache.size());
+        metrics.put("hits", recommendationCache.getHitCount());
+        metrics.put("misses", recommendationCache.getMissCount());
+        metrics.put("hitRate", recommendationCache.getHitRate());
+        metrics.put("evictions", recommendationCache.getEvictionCount());
+        metrics.put("expirations", recommendationCache.getExpirationCount());
+        metrics.put("invalidations", recommendationCache.getInvalidationCount());
+        metrics.put("precomputedHits", RecommendationsHandler.precomputedHits.sum());
+        metrics.put("precomputedMisses", RecommendationsHandler.precomputedMisses.sum());
+        return metrics;
+    }
+    
+    // Serves a snapshot of counters: connection pool gauges, recommendation cache hits
+    static class MetricsHandler implements HttpHandler {
+        private final Supplier<Map<String, Number>> metrics;
+        
+        MetricsHandler(Supplier<Map<String, Number>> metrics) {
+            this.metrics = metrics;
+        }
+        
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("GET".equals(exchange.getRequestMethod())) {
-                String response = getAllUsersJSON();
-                sendResponse(exchange, response, 200);
+                try (JsonGenerator json = openJsonResponse(exchange)) {
+                    json.writeStartObject();
+                    for (Map.Entry<String, Number> metric : metrics.get().entrySet()) {
+                        json.writeFieldName(metric.getKey());
+                        json.writeNumber(metric.getValue().toString());
+                    }
+                    json.writeEndObject();
+                    finishJsonResponse(json);
+                }
             } else {
                 sendResponse(exchange, "Method not allowed", 405);
             }
         }
+    }
+    
+    // Handler for users API
+    /**
+     * GET /api/users?after=&limit= lists users in user_id order, one page at a
+     * time. The cursor is the last user_id of the previous page; a page shorter
+     * than limit is the last one. Favorite genres and rating counts come from
+     * the same query, and rows are written out as they are read.
+     */
+    static class UsersHandler implements HttpHandler {
+        private static final int DEFAULT_PAGE_SIZE = 100;
+        private static final int MAX_PAGE_SIZE = 1000;
         
-        private String getAllUsersJSON() {
-            StringBuilder json = new StringBuilder();
-            json.append("[");
-            
-            try (Connection conn = DatabaseConnection.getConnection();
-                 Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery("SELECT * FROM users ORDER BY user_id")) {
-                
-                boolean first = true;
-                while (rs.next()) {
-                    if (!first) json.append(",");
-                    
-                    int userId = rs.getInt("user_id");
-                    String name = rs.getString("name");
-                    
-                    // Get favorite genres
-                    List<String> genres = getUserGenres(conn, userId);
-                    
-                    // Get user ratings
-                    Map<Integer, Double> ratings = getUserRatings(conn, userId);
-                    
-                    json.append("{")
-                        .append("\"user_id\":").append(userId).append(",")
-                        .append("\"name\":\"").append(escapeJson(name)).append("\",")
-                        .append("\"favorite_genres\":").append(listToJSON(genres)).append(",")
-                        .append("\"ratings_count\":").append(ratings.size())
-                        .append("}");
-                    first = false;
-                }
-            } catch (SQLException e) {
-                System.err.println("Error fetching users: " + e.getMessage());
-            }
-            
-            json.append("]");
-            return json.toString();
-        }
+        private static final String USERS_PAGE_QUERY = """
+            SELECT u.user_id, u.name, g.favorite_genres, r.ratings_count
+            FROM users u
+            CROSS JOIN LATERAL (
+                SELECT COALESCE(array_agg(genre ORDER BY id), '{}') AS favorite_genres
+                FROM user_favorite_genres WHERE user_id = u.user_id
+            ) g
+            CROSS JOIN LATERAL (
+                SELECT count(*) AS ratings_count
+                FROM user_movie_ratings WHERE user_id = u.user_id
+            ) r
+            WHERE u.user_id > ?
+            ORDER BY u.user_id
+            LIMIT ?
+        """;
         
-        private List<String> getUserGenres(Connection conn, int userId) throws SQLException {
-            List<String> genres = new ArrayList<>();
-            String query = "SELECT genre FROM user_favorite_genres WHERE user_id = ?";
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setInt(1, userId);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        genres.add(rs.getString("genre"));
-                    }
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("GET".equals(exchange.getRequestMethod())) {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                int after;
+                int limit;
+                try {
+                    after = Integer.parseInt(params.getOrDefault("after", "0"));
+                    limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+                } catch (NumberFormatException e) {
+                    sendResponse(exchange, "{\"error\":\"Invalid after or limit parameter\"}", 400);
+                    return;
+                }
+                if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+                    sendResponse(exchange, "{\"error\":\"limit must be between 1 and " + MAX_PAGE_SIZE + "\"}", 400);
+                    return;
                 }
+                writeUsersPage(exchange, after, limit);
+            } else {
+                sendResponse(exchange, "Method not allowed", 405);
             }
-            return genres;
         }
         
-        private Map<Integer, Double> getUserRatings(Connection conn, int userId) throws SQLException {
-            Map<Integer, Double> ratings = new HashMap<>();
-            String query = "SELECT movie_id, rating FROM user_movie_ratings WHERE user_id = ?";
-            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
-                pstmt.setInt(1, userId);
-                try (ResultSet rs = pstmt.executeQuery()) {
+        private void writeUsersPage(HttpExchange exchange, int after, int limit) throws IOException {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(USERS_PAGE_QUERY)) {
+                pstmt.setInt(1, after);
+                pstmt.setInt(2, limit);
+                
+                try (ResultSet rs = pstmt.executeQuery();
+                     JsonGenerator json = openJsonResponse(exchange)) {
+                    json.writeStartArray();
                     while (rs.next()) {
-                        ratings.put(rs.getInt("movie_id"), rs.getDouble("rating"));
+                        json.writeStartObject();
+                        json.writeNumberField("user_id", rs.getInt("user_id"));
+                        json.writeStringField("name", nullToEmpty(rs.getString("name")));
+                        json.writeArrayFieldStart("favorite_genres");
+                        for (String genre : (String[]) rs.getArray("favorite_genres").getArray()) {
+                            json.writeString(genre);
+                        }
+                        json.writeEndArray();
+                        json.writeNumberField("ratings_count", rs.getLong("ratings_count"));
+                        json.writeEndObject();
                     }
+                    json.writeEndArray();
+                    finishJsonResponse(json);
                 }
+            } catch (SQLException e) {
+                System.err.println("Error fetching users: " + e.getMessage());
+                sendErrorIfNotStarted(exchange, "Could not load users");
             }
-            return ratings;
         }
     }
     
-    // Handler for recommendations API
+    /**
+     * GET /api/recommendations?user_id=1&limit=5, limit from 1 to MAX_LIMIT.
+     * Served from the user_recommendations table that PrecomputeRecommendations fills when the
+     * user's row is fresh: long enough for the limit, younger than the max age,
+     * and computed after the user's last rating. Otherwise the list is scored
+     * online, leaving out movies the user rated whose ratings are still in the
+     * write-behind buffer. Either way the result goes through the recommendation
+     * cache.
+     */
     static class RecommendationsHandler implements HttpHandler {
+        private static final String PRECOMPUTED_QUERY = """
+            SELECT '[' || array_to_string(r.movies[1:?], ',') || ']'
+            FROM user_recommendations r
+            WHERE r.user_id = ? AND r.list_size >= ?
+            AND r.computed_at > CURRENT_TIMESTAMP - ? * INTERVAL '1 second'
+            AND NOT EXISTS (
+                SELECT 1 FROM user_movie_ratings WHERE user_id = r.user_id AND rated_at > r.computed_at
+            )
+        """;
+        static final int MAX_LIMIT = 100;
+        private static final int MAX_AGE_SECONDS = Config.getInstance().getPrecomputedRecommendationsMaxAgeSeconds();
+        static final LongAdder precomputedHits = new LongAdder();
+        static final LongAdder precomputedMisses = new LongAdder();
+        
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("GET".equals(exchange.getRequestMethod())) {
-                String query = exchange.getRequestURI().getQuery();
-                Map<String, String> params = parseQuery(query);
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
                 
                 String userIdStr = params.get("user_id");
                 String limitStr = params.getOrDefault("limit", "5");
@@ -169,24 +486,64 @@ public class MovieWebAPI {
                     return;
                 }
                 
+                int userId;
+                int limit;
                 try {
-                    int userId = Integer.parseInt(userIdStr);
-                    int limit = Integer.parseInt(limitStr);
-                    String response = getRecommendationsJSON(userId, limit);
-                    sendResponse(exchange, response, 200);
+                    userId = Integer.parseInt(userIdStr);
+                    limit = Integer.parseInt(limitStr);
                 } catch (NumberFormatException e) {
                     sendResponse(exchange, "{\"error\":\"Invalid user_id or limit parameter\"}", 400);
+                    return;
+                }
+                if (limit <= 0 || limit > MAX_LIMIT) {
+                    sendResponse(exchange, "{\"error\":\"limit must be between 1 and " + MAX_LIMIT + "\"}", 400);
+                    return;
+                }
+                
+                String response = recommendationCache.get(userId, limit, () -> {
+                    Set<Integer> pending = ratingWriteBuffer.pendingFor(userId).keySet();
+                    String precomputed = pending.isEmpty() ? getPrecomputedJSON(userId, limit) : null;
+                    return precomputed != null ? precomputed : getRecommendationsJSON(userId, limit, pending);
+                });
+                if (response != null) {
+                    sendResponse(exchange, response, 200);
+                } else {
+                    sendResponse(exchange, "{\"error\":\"Could not load recommendations\"}", 500);
                 }
             } else {
                 sendResponse(exchange, "Method not allowed", 405);
             }
         }
         
-        private String getRecommendationsJSON(int userId, int limit) {
-            StringBuilder json = new StringBuilder();
-            json.append("[");
-            
-            try (Connection conn = DatabaseConnection.getConnection()) {
+        // The stored list cut to the limit, or null when the row is missing or stale
+        private String getPrecomputedJSON(int userId, int limit) {
+            if (limit <= 0) return null;
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(PRECOMPUTED_QUERY)) {
+                pstmt.setInt(1, limit);
+                pstmt.setInt(2, userId);
+                pstmt.setInt(3, limit);
+                pstmt.setInt(4, MAX_AGE_SECONDS);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        precomputedHits.increment();
+                        return rs.getString(1);
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error reading precomputed recommendations: " + e.getMessage());
+            }
+            precomputedMisses.increment();
+            return null;
+        }
+        
+        // Null when the database cannot be read, so failures are not cached
+        private String getRecommendationsJSON(int userId, int limit, Set<Integer> pendingRated) {
+            StringWriter response = new StringWriter();
+            try (Connection conn = DatabaseConnection.getConnection();
+                 JsonGenerator json = JSON.createGenerator(response)) {
+                json.writeStartArray();
+                
                 // Get user's favorite genres
                 List<String> favoriteGenres = getUserFavoriteGenres(conn, userId);
                 
@@ -197,21 +554,16 @@ public class MovieWebAPI {
                         WHERE m.id NOT IN (
                             SELECT movie_id FROM user_movie_ratings WHERE user_id = ?
                         )
-                        ORDER BY m.rating DESC 
+                        ORDER BY m.rating DESC, m.id
                         LIMIT ?
                     """;
                     
                     try (PreparedStatement pstmt = conn.prepareStatement(query)) {
                         pstmt.setInt(1, userId);
-                        pstmt.setInt(2, limit);
+                        pstmt.setInt(2, limit + pendingRated.size());
                         
                         try (ResultSet rs = pstmt.executeQuery()) {
-                            boolean first = true;
-                            while (rs.next()) {
-                                if (!first) json.append(",");
-                                appendMovieJSON(json, rs);
-                                first = false;
-                            }
+                            writeUnlessPending(json, rs, pendingRated, limit);
                         }
                     }
                 } else {
@@ -222,7 +574,7 @@ public class MovieWebAPI {
                         AND m.id NOT IN (
                             SELECT movie_id FROM user_movie_ratings WHERE user_id = ?
                         )
-                        ORDER BY m.rating DESC 
+                        ORDER BY m.rating DESC, m.id
                         LIMIT ?
                     """;
                     
@@ -230,36 +582,30 @@ public class MovieWebAPI {
                         Array genreArray = conn.createArrayOf("VARCHAR", favoriteGenres.toArray());
                         pstmt.setArray(1, genreArray);
                         pstmt.setInt(2, userId);
-                        pstmt.setInt(3, limit);
+                        pstmt.setInt(3, limit + pendingRated.size());
                         
                         try (ResultSet rs = pstmt.executeQuery()) {
-                            boolean first = true;
-                            while (rs.next()) {
-                                if (!first) json.append(",");
-                                appendMovieJSON(json, rs);
-                                first = false;
-                            }
+                            writeUnlessPending(json, rs, pendingRated, limit);
                         }
                     }
                 }
-            } catch (SQLException e) {
+                json.writeEndArray();
+            } catch (SQLException | IOException e) {
                 System.err.println("Error getting recommendations: " + e.getMessage());
+                return null;
             }
-            
-            json.append("]");
-            return json.toString();
+            return response.toString();
         }
         
-        private void appendMovieJSON(StringBuilder json, ResultSet rs) throws SQLException {
-            json.append("{")
-                .append("\"id\":").append(rs.getInt("id")).append(",")
-                .append("\"title\":\"").append(escapeJson(rs.getString("title"))).append("\",")
-                .append("\"genre\":\"").append(escapeJson(rs.getString("genre"))).append("\",")
-                .append("\"director\":\"").append(escapeJson(rs.getString("director"))).append("\",")
-                .append("\"year\":").append(rs.getInt("year")).append(",")
-                .append("\"rating\":").append(rs.getDouble("rating")).append(",")
-                .append("\"description\":\"").append(escapeJson(rs.getString("description"))).append("\"")
-                .append("}");
+        // The first limit movies the user has no buffered rating for
+        private void writeUnlessPending(JsonGenerator json, ResultSet rs, Set<Integer> pendingRated, int limit)
+                throws SQLException, IOException {
+            int written = 0;
+            while (written < limit && rs.next()) {
+                if (pendingRated.contains(rs.getInt("id"))) continue;
+                writeMovie(json, rs);
+                written++;
+            }
         }
         
         private List<String> getUserFavoriteGenres(Connection conn, int userId) throws SQLException {
@@ -277,23 +623,362 @@ public class MovieWebAPI {
         }
     }
     
-    // Handler for ratings API
+    /**
+     * POST /api/recommendations/batch with {"user_ids": [1, 2, ...], "limit": 5}.
+     * Answers with one NDJSON line per user, {"user_id": 1, "recommendations": [...]},
+     * in request order and with the same lists as GET /api/recommendations.
+     *
+     * The catalog is read once per request. Users are then handled in chunks:
+     * two set-based queries fetch the chunk's favorite genres and rated movies,
+     * the users are scored in parallel on the common ForkJoin pool, and the
+     * chunk's lines are flushed before the next chunk is read. Batch results
+     * bypass the recommendation cache so a large job does not flush it.
+     */
+    static class BatchRecommendationsHandler implements HttpHandler {
+        private static final int CHUNK_SIZE = 1000;
+        private static final int MAX_LIMIT = RecommendationsHandler.MAX_LIMIT;
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, "Method not allowed", 405);
+                return;
+            }
+            
+            int[] userIds = null;
+            int limit = 5;
+            try (JsonParser parser = JSON.createParser(exchange.getRequestBody())) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    userIds = readUserIds(parser);
+                } else if (token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        JsonToken value = parser.nextToken();
+                        switch (field) {
+                            case "user_ids" -> {
+                                if (value != JsonToken.START_ARRAY) {
+                                    throw new JsonParseException(parser, "user_ids must be an array");
+                                }
+                                userIds = readUserIds(parser);
+                            }
+                            // Fractional and out of int range limits are left as 0 and rejected below
+                            case "limit" -> limit = isInt(parser, value) ? parser.getIntValue() : 0;
+                            default -> parser.skipChildren();
+                        }
+                    }
+                } else {
+                    throw new JsonParseException(parser, "Expected a JSON object or array");
+                }
+            } catch (JsonProcessingException e) {
+                sendResponse(exchange, "{\"error\":\"Request body must be a JSON object with a user_ids array of integers\"}", 400);
+                return;
+            }
+            if (userIds == null || limit < 1 || limit > MAX_LIMIT) {
+                sendResponse(exchange, "{\"error\":\"user_ids array and a limit from 1 to " + MAX_LIMIT + " required\"}", 400);
+                return;
+            }
+            
+            Catalog catalog;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                catalog = Catalog.load(conn);
+            } catch (SQLException e) {
+                System.err.println("Error loading catalog for batch recommendations: " + e.getMessage());
+                sendResponse(exchange, "{\"error\":\"Could not load recommendations\"}", 500);
+                return;
+            }
+            
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(openChunkedResponse(exchange, "application/x-ndjson"), "UTF-8"))) {
+                for (int from = 0; from < userIds.length; from += CHUNK_SIZE) {
+                    int[] chunk = Arrays.copyOfRange(userIds, from, Math.min(userIds.length, from + CHUNK_SIZE));
+                    String[] lines;
+                    try {
+                        lines = scoreChunk(catalog, chunk, limit);
+                    } catch (SQLException e) {
+                        // The status is already sent, so the failure goes in the stream
+                        System.err.println("Error getting batch recommendations: " + e.getMessage());
+                        out.write("{\"error\":\"Could not load recommendations\"}\n");
+                        return;
+                    }
+                    for (String line : lines) {
+                        out.write(line);
+                        out.write('\n');
+                    }
+                    out.flush();
+                }
+            }
+        }
+        
+        // The ids of an array whose START_ARRAY was just read
+        private static int[] readUserIds(JsonParser parser) throws IOException {
+            IntStream.Builder userIds = IntStream.builder();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (!isInt(parser, token)) {
+                    throw new JsonParseException(parser, "user ids must be integers");
+                }
+                userIds.add(parser.getIntValue());
+            }
+            return userIds.build().toArray();
+        }
+        
+        private static boolean isInt(JsonParser parser, JsonToken token) throws IOException {
+            return token == JsonToken.VALUE_NUMBER_INT && parser.getNumberType() == JsonParser.NumberType.INT;
+        }
+        
+        private static String[] scoreChunk(Catalog catalog, int[] userIds, int limit) throws SQLException {
+            Map<Integer, List<String>> genresByUser = new HashMap<>();
+            Map<Integer, int[]> ratedByUser = new HashMap<>();
+            // Taken before the query: a rating leaves the buffer only once its row is committed
+            Map<Integer, Set<Integer>> pendingByUser = new HashMap<>();
+            for (int userId : userIds) {
+                Set<Integer> pending = ratingWriteBuffer.pendingFor(userId).keySet();
+                if (!pending.isEmpty()) pendingByUser.put(userId, pending);
+            }
+            
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                Array userIdArray = conn.createArrayOf("INTEGER", Arrays.stream(userIds).boxed().toArray());
+                
+                String genreQuery = "SELECT user_id, genre FROM user_favorite_genres WHERE user_id = ANY(?)";
+                try (PreparedStatement pstmt = conn.prepareStatement(genreQuery)) {
+                    pstmt.setArray(1, userIdArray);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            genresByUser.computeIfAbsent(rs.getInt(1), id -> new ArrayList<>()).add(rs.getString(2));
+                        }
+                    }
+                }
+                
+                // One array per user, sorted by movie id for binary search
+                String ratedQuery = """
+                    SELECT user_id, array_agg(movie_id ORDER BY movie_id)
+                    FROM user_movie_ratings WHERE user_id = ANY(?)
+                    GROUP BY user_id
+                """;
+                try (PreparedStatement pstmt = conn.prepareStatement(ratedQuery)) {
+                    pstmt.setArray(1, userIdArray);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Integer[] movieIds = (Integer[]) rs.getArray(2).getArray();
+                            ratedByUser.put(rs.getInt(1), Arrays.stream(movieIds).mapToInt(Integer::intValue).toArray());
+                        }
+                    }
+                }
+            }
+            
+            // Buffered ratings count as rated, as in GET /api/recommendations
+            for (Map.Entry<Integer, Set<Integer>> entry : pendingByUser.entrySet()) {
+                int[] saved = ratedByUser.getOrDefault(entry.getKey(), new int[0]);
+                ratedByUser.put(entry.getKey(), IntStream.concat(Arrays.stream(saved), entry.getValue().stream().mapToInt(Integer::intValue))
+                                                         .sorted().distinct().toArray());
+            }
+            
+            String[] lines = new String[userIds.length];
+            int[] noRatings = new int[0];
+            IntStream.range(0, userIds.length)
+                    .parallel()
+                    .forEach(i -> lines[i] = catalog.recommend(userIds[i], genresByUser.get(userIds[i]),
+                                                               ratedByUser.getOrDefault(userIds[i], noRatings), limit));
+            return lines;
+        }
+    }
+    
+    /**
+     * Movies rendered once, in recommendation order (rating descending, then
+     * id). Each genre keeps the ascending ranks of its movies, so a user's
+     * list is a merge of their genres' rank lists. Gives the same lists as
+     * GET /api/recommendations, for the batch endpoint and the precompute job.
+     */
+    static class Catalog {
+        private final int[] movieIdByRank;
+        private final String[] jsonByRank;
+        private final int[] allRanks;
+        private final Map<String, int[]> ranksByGenre;
+        
+        private Catalog(int[] movieIdByRank, String[] jsonByRank, Map<String, int[]> ranksByGenre) {
+            this.movieIdByRank = movieIdByRank;
+            this.jsonByRank = jsonByRank;
+            this.allRanks = IntStream.range(0, movieIdByRank.length).toArray();
+            this.ranksByGenre = ranksByGenre;
+        }
+        
+        static Catalog load(Connection conn) throws SQLException, IOException {
+            List<Integer> movieIds = new ArrayList<>();
+            List<String> rendered = new ArrayList<>();
+            Map<String, List<Integer>> ranks = new HashMap<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT * FROM movies ORDER BY rating DESC, id")) {
+                while (rs.next()) {
+                    StringWriter movie = new StringWriter();
+                    try (JsonGenerator json = JSON.createGenerator(movie)) {
+                        writeMovie(json, rs);
+                    }
+                    ranks.computeIfAbsent(rs.getString("genre"), genre -> new ArrayList<>()).add(movieIds.size());
+                    movieIds.add(rs.getInt("id"));
+                    rendered.add(movie.toString());
+                }
+            }
+            
+            Map<String, int[]> ranksByGenre = new HashMap<>();
+            for (Map.Entry<String, List<Integer>> entry : ranks.entrySet()) {
+                ranksByGenre.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            return new Catalog(movieIds.stream().mapToInt(Integer::intValue).toArray(),
+                               rendered.toArray(new String[0]), ranksByGenre);
+        }
+        
+        // Ranks of the best unrated movies from the favorite genres, or from the whole catalog without any
+        int[] recommendRanks(List<String> favoriteGenres, int[] ratedMovieIds, int limit) {
+            List<int[]> lists = new ArrayList<>();
+            if (favoriteGenres == null) {
+                lists.add(allRanks);
+            } else {
+                for (String genre : favoriteGenres) {
+                    int[] genreRanks = ranksByGenre.get(genre);
+                    if (genreRanks != null) lists.add(genreRanks);
+                }
+            }
+            
+            int[] chosen = new int[Math.min(limit, movieIdByRank.length)];
+            int[] positions = new int[lists.size()];
+            int count = 0;
+            while (count < chosen.length) {
+                int best = -1;
+                for (int i = 0; i < lists.size(); i++) {
+                    if (positions[i] < lists.get(i).length
+                            && (best < 0 || lists.get(i)[positions[i]] < lists.get(best)[positions[best]])) {
+                        best = i;
+                    }
+                }
+                if (best < 0) break;
+                
+                int rank = lists.get(best)[positions[best]++];
+                if (Arrays.binarySearch(ratedMovieIds, movieIdByRank[rank]) >= 0) continue;
+                chosen[count++] = rank;
+            }
+            return Arrays.copyOf(chosen, count);
+        }
+        
+        int movieId(int rank) {
+            return movieIdByRank[rank];
+        }
+        
+        String movieJson(int rank) {
+            return jsonByRank[rank];
+        }
+        
+        // One NDJSON line of the batch endpoint
+        String recommend(int userId, List<String> favoriteGenres, int[] ratedMovieIds, int limit) {
+            StringBuilder line = new StringBuilder();
+            line.append("{\"user_id\":").append(userId).append(",\"recommendations\":[");
+            int[] ranks = recommendRanks(favoriteGenres, ratedMovieIds, limit);
+            for (int i = 0; i < ranks.length; i++) {
+                if (i > 0) line.append(",");
+                line.append(jsonByRank[ranks[i]]);
+            }
+            return line.append("]}").toString();
+        }
+    }
+    
+    /**
+     * POST /api/ratings with {"user_id": 1, "movie_id": 2, "rating": 4.5} adds or
+     * replaces a rating. The rating goes into the write-behind buffer and the
+     * response, 202, does not wait for the database; a full buffer answers 429
+     * with Retry-After. GET /api/ratings?user_id=1 lists the user's ratings by
+     * movie id, including ones still in the buffer.
+     */
     static class RatingsHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("POST".equals(exchange.getRequestMethod())) {
-                // Handle adding new rating
-                String requestBody = readRequestBody(exchange);
-                // Parse JSON and add rating to database
-                sendResponse(exchange, "{\"status\":\"success\"}", 200);
+                addRating(exchange);
+            } else if ("GET".equals(exchange.getRequestMethod())) {
+                String userIdStr = parseQuery(exchange.getRequestURI().getRawQuery()).get("user_id");
+                try {
+                    writeRatings(exchange, Integer.parseInt(userIdStr));
+                } catch (NumberFormatException e) {
+                    sendResponse(exchange, "{\"error\":\"user_id parameter required\"}", 400);
+                }
             } else {
                 sendResponse(exchange, "Method not allowed", 405);
             }
         }
+        
+        private void addRating(HttpExchange exchange) throws IOException {
+            int userId = 0;
+            int movieId = 0;
+            double rating = Double.NaN;
+            try (JsonParser parser = JSON.createParser(exchange.getRequestBody())) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser, "Expected a JSON object");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "user_id" -> userId = value == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : 0;
+                        case "movie_id" -> movieId = value == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : 0;
+                        case "rating" -> rating = value.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                        default -> parser.skipChildren();
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                sendResponse(exchange, "{\"error\":\"Request body must be a JSON object\"}", 400);
+                return;
+            }
+            if (userId <= 0 || movieId <= 0 || !(rating >= 1.0 && rating <= 5.0)) {
+                sendResponse(exchange, "{\"error\":\"user_id, movie_id and a rating from 1 to 5 are required\"}", 400);
+                return;
+            }
+            
+            if (!ratingWriteBuffer.offer(userId, movieId, rating)) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendResponse(exchange, "{\"error\":\"Too many ratings waiting to be saved, retry later\"}", 429);
+                return;
+            }
+            // The rated movie drops out of this user's recommendations
+            recommendationCache.invalidateUser(userId);
+            sendResponse(exchange, "{\"status\":\"accepted\"}", 202);
+        }
+        
+        private void writeRatings(HttpExchange exchange, int userId) throws IOException {
+            // Read the buffer first: a rating flushed in between is then found in the table
+            Map<Integer, Double> pending = ratingWriteBuffer.pendingFor(userId);
+            TreeMap<Integer, Double> ratings = new TreeMap<>();
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement("SELECT movie_id, rating FROM user_movie_ratings WHERE user_id = ?")) {
+                pstmt.setInt(1, userId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ratings.put(rs.getInt(1), rs.getDouble(2));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error fetching ratings: " + e.getMessage());
+                sendResponse(exchange, "{\"error\":\"Could not load ratings\"}", 500);
+                return;
+            }
+            ratings.putAll(pending);
+            
+            try (JsonGenerator json = openJsonResponse(exchange)) {
+                json.writeStartArray();
+                for (Map.Entry<Integer, Double> entry : ratings.entrySet()) {
+                    json.writeStartObject();
+                    json.writeNumberField("movie_id", entry.getKey());
+                    json.writeNumberField("rating", entry.getValue());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                finishJsonResponse(json);
+            }
+        }
     }
     
     // Handler for static files (HTML, CSS, JS)
     static class StaticFileHandler implements HttpHandler {
+        // Encoded and compressed once at startup, then served from memory
+        private final HttpBodies.Encoded indexHTML = new HttpBodies.Encoded(getIndexHTML().getBytes(StandardCharsets.UTF_8));
+        
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             String path = exchange.getRequestURI().getPath();
@@ -303,9 +988,7 @@ public class MovieWebAPI {
             
             // Serve the HTML page
             if (path.equals("/index.html")) {
-                String html = getIndexHTML();
-                exchange.getResponseHeaders().set("Content-Type", "text/html");
-                sendResponse(exchange, html, 200);
+                HttpBodies.send(exchange, "text/html; charset=UTF-8", cacheControl(exchange, 200), indexHTML);
             } else {
                 sendResponse(exchange, "Not Found", 404);
             }
@@ -429,12 +1112,12 @@ public class MovieWebAPI {
                     </div>
                 
                     <script>
-                        // Load all movies
+                        // Load the first page of movies
                         async function loadMovies() {
                             try {
-                                const response = await fetch('/api/movies');
-                                const movies = await response.json();
-                                displayMovies(movies, 'movies-container');
+                                const response = await fetch('/api/movies?limit=50');
+                                const page = await response.json();
+                                displayMovies(page.movies, 'movies-container');
                             } catch (error) {
                                 document.getElementById('movies-container').innerHTML = '<p>Error loading movies</p>';
                             }
@@ -540,52 +1223,91 @@ public class MovieWebAPI {
     
     // Utility methods
     private static void sendResponse(HttpExchange exchange, String response, int statusCode) throws IOException {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
         exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
+        HttpBodies.send(exchange, statusCode, "application/json", cacheControl(exchange, statusCode),
+                        response.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Sends a 200 with chunked encoding, for bodies written while they are produced
+    private static OutputStream openChunkedResponse(HttpExchange exchange, String contentType) throws IOException {
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        return HttpBodies.openStream(exchange, contentType, cacheControl(exchange, 200));
+    }
+    
+    // Closing the generator sends the body: with an ETag if it fit the buffer, else chunked.
+    // A buffered body is only sent if finishJsonResponse was called first.
+    private static JsonGenerator openJsonResponse(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        return JSON.createGenerator(HttpBodies.open(exchange, "application/json", cacheControl(exchange, 200)), JsonEncoding.UTF8);
+    }
+    
+    // The last call in an openJsonResponse block; a block that throws before it sends nothing
+    private static void finishJsonResponse(JsonGenerator json) {
+        ((HttpBodies.Body) json.getOutputTarget()).complete();
+    }
+    
+    private static String cacheControl(HttpExchange exchange, int statusCode) {
+        if (statusCode != 200) return "no-store";
+        String context = exchange.getHttpContext().getPath();
+        if (context.equals("/api/movies") && MoviesHandler.isSimilarPath(exchange.getRequestURI().getPath().split("/"))) {
+            return SIMILAR_CACHE_CONTROL;
+        }
+        return CACHE_CONTROL.getOrDefault(context, "no-cache");
+    }
+    
+    // An unfinished buffered body was dropped, so this sends the 500. Once a body over the buffer
+    // size has started streaming, its status is sent and a failure can only cut the body short.
+    private static void sendErrorIfNotStarted(HttpExchange exchange, String message) throws IOException {
+        if (exchange.getResponseCode() == -1) {
+            sendResponse(exchange, "{\"error\":\"" + message + "\"}", 500);
+        }
+    }
+    
+    private static void writeMovieColumn(JsonGenerator json, ResultSet rs, String column) throws SQLException, IOException {
+        switch (column) {
+            case "id", "year" -> json.writeNumberField(column, rs.getInt(column));
+            case "rating" -> json.writeNumberField(column, rs.getDouble(column));
+            default -> json.writeStringField(column, nullToEmpty(rs.getString(column)));
         }
     }
     
-    private static String escapeJson(String str) {
-        if (str == null) return "";
-        return str.replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r");
+    private static void writeMovie(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+        json.writeStartObject();
+        writeMovieFields(json, rs.getInt("id"), rs.getString("title"), rs.getString("genre"), rs.getString("director"),
+                         rs.getInt("year"), rs.getDouble("rating"), rs.getString("description"));
+        json.writeEndObject();
+    }
+    
+    private static void writeMovieFields(JsonGenerator json, int id, String title, String genre, String director,
+                                         int year, double rating, String description) throws IOException {
+        json.writeNumberField("id", id);
+        json.writeStringField("title", nullToEmpty(title));
+        json.writeStringField("genre", nullToEmpty(genre));
+        json.writeStringField("director", nullToEmpty(director));
+        json.writeNumberField("year", year);
+        json.writeNumberField("rating", rating);
+        json.writeStringField("description", nullToEmpty(description));
     }
     
-    private static String listToJSON(List<String> list) {
-        if (list.isEmpty()) return "[]";
-        StringBuilder json = new StringBuilder("[");
-        for (int i = 0; i < list.size(); i++) {
-            if (i > 0) json.append(",");
-            json.append("\"").append(escapeJson(list.get(i))).append("\"");
-        }
-        json.append("]");
-        return json.toString();
+    // Missing text columns have always been sent as empty strings
+    private static String nullToEmpty(String str) {
+        return str != null ? str : "";
     }
     
-    private static Map<String, String> parseQuery(String query) {
+    // Takes the raw query and decodes each name and value once; the server has already
+    // answered a malformed escape with a 400
+    private static Map<String, String> parseQuery(String rawQuery) {
         Map<String, String> params = new HashMap<>();
-        if (query != null && !query.isEmpty()) {
-            String[] pairs = query.split("&");
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            String[] pairs = rawQuery.split("&");
             for (String pair : pairs) {
                 String[] keyValue = pair.split("=");
                 if (keyValue.length == 2) {
-                    params.put(keyValue[0], keyValue[1]);
+                    params.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
+                               URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8));
                 }
             }
         }
         return params;
     }
-    
-    private static String readRequestBody(HttpExchange exchange) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody()))) {
-            StringBuilder body = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                body.append(line);
-            }
-            return body.toString();
-        }
-    }
 }
\ No newline at end of file
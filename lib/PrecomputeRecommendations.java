@@ -0,0 +1,273 @@
+// PrecomputeRecommendations.java
+import config.Config;
+import org.postgresql.PGConnection;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Offline job that writes every user's GET /api/recommendations list to the
+ * user_recommendations table, where RecommendationsHandler serves it with one
+ * primary key lookup.
+ *
+ *   java PrecomputeRecommendations [list-size] [--restart]
+ *
+ * Users are split into ranges of RANGE_SIZE ids, processed in parallel on the
+ * common ForkJoin pool. Each range reads its users' genres and ratings, scores
+ * them against a catalog loaded once, and replaces its rows with COPY, all in
+ * one transaction that also records the range as done. A run that stops part
+ * way is resumed by the next start with the same list size, which skips the
+ * ranges already recorded; --restart begins a new run instead.
+ */
+public class PrecomputeRecommendations {
+    private static final int RANGE_SIZE = 1000;
+
+    public static void main(String[] args) {
+        int listSize = Config.getInstance().getPrecomputedRecommendationsListSize();
+        boolean restart = false;
+        for (String arg : args) {
+            if ("--restart".equals(arg)) {
+                restart = true;
+            } else {
+                listSize = Integer.parseInt(arg);
+            }
+        }
+        if (listSize <= 0) {
+            System.err.println("Usage: java PrecomputeRecommendations [list-size] [--restart]");
+            System.exit(1);
+        }
+
+        int exitCode = 0;
+        try {
+            DatabaseConnection.initializeSchema();
+            exitCode = run(listSize, restart) ? 0 : 1;
+        } catch (IOException | SQLException e) {
+            System.err.println("Precompute failed: " + e.getMessage());
+            exitCode = 1;
+        } finally {
+            DatabaseConnection.closePool();
+        }
+        System.exit(exitCode);
+    }
+
+    // True when every range is done and the run is marked finished
+    private static boolean run(int listSize, boolean restart) throws IOException, SQLException {
+        long start = System.nanoTime();
+        int runId;
+        int[] pending;
+        MovieWebAPI.Catalog catalog;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            runId = restart ? -1 : unfinishedRun(conn, listSize);
+            if (runId < 0) {
+                runId = startRun(conn, listSize);
+                System.out.println("Starting run " + runId + " with lists of " + listSize);
+            } else {
+                System.out.println("Resuming run " + runId + " with lists of " + listSize);
+            }
+            pending = pendingRanges(conn, runId);
+            catalog = MovieWebAPI.Catalog.load(conn);
+        }
+        System.out.printf("%d ranges of %d user ids to compute%n", pending.length, RANGE_SIZE);
+
+        int id = runId;
+        AtomicLong users = new AtomicLong();
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        IntStream.of(pending).parallel().forEach(rangeStart -> {
+            try {
+                long count = computeRange(catalog, id, rangeStart, listSize);
+                long total = users.addAndGet(count);
+                System.out.printf("Range %d-%d: %d users (%d so far, %.0f users/s)%n", rangeStart, rangeStart + RANGE_SIZE - 1,
+                                  count, total, total / ((System.nanoTime() - start) / 1e9));
+            } catch (SQLException e) {
+                failures.add("range " + rangeStart + ": " + e.getMessage());
+            }
+        });
+
+        if (!failures.isEmpty()) {
+            failures.forEach(failure -> System.err.println("Failed " + failure));
+            System.err.println(failures.size() + " ranges failed; run again to resume run " + runId);
+            return false;
+        }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE recommendation_runs SET finished_at = CURRENT_TIMESTAMP WHERE run_id = ?")) {
+            pstmt.setInt(1, runId);
+            pstmt.executeUpdate();
+        }
+        System.out.printf("Run %d finished: %d users in %.1f s%n", runId, users.get(), (System.nanoTime() - start) / 1e9);
+        return true;
+    }
+
+    // The newest unfinished run with this list size, or -1
+    private static int unfinishedRun(Connection conn, int listSize) throws SQLException {
+        String query = "SELECT run_id FROM recommendation_runs WHERE finished_at IS NULL AND list_size = ? ORDER BY run_id DESC LIMIT 1";
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, listSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    private static int startRun(Connection conn, int listSize) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO recommendation_runs (list_size) VALUES (?) RETURNING run_id")) {
+            pstmt.setInt(1, listSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    // Starts of the ranges covering all user ids that this run has not finished
+    private static int[] pendingRanges(Connection conn, int runId) throws SQLException {
+        int minUserId;
+        int maxUserId;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(user_id), MAX(user_id) FROM users")) {
+            rs.next();
+            minUserId = rs.getInt(1);
+            maxUserId = rs.getInt(2);
+            if (rs.wasNull()) return new int[0];
+        }
+        Set<Integer> done = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT range_start FROM recommendation_run_ranges WHERE run_id = ?")) {
+            pstmt.setInt(1, runId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    done.add(rs.getInt(1));
+                }
+            }
+        }
+        // Aligned to RANGE_SIZE, so a resumed run splits the ids the same way
+        int first = Math.floorDiv(minUserId, RANGE_SIZE) * RANGE_SIZE;
+        return IntStream.iterate(first, rangeStart -> rangeStart <= maxUserId, rangeStart -> rangeStart + RANGE_SIZE)
+                        .filter(rangeStart -> !done.contains(rangeStart))
+                        .toArray();
+    }
+
+    /**
+     * Scores the users with ids in [rangeStart, rangeStart + RANGE_SIZE) and
+     * replaces their rows in one transaction. computed_at takes the default,
+     * the transaction start, which is before the ratings were read.
+     */
+    private static long computeRange(MovieWebAPI.Catalog catalog, int runId, int rangeStart, int listSize) throws SQLException {
+        int rangeEnd = rangeStart + RANGE_SIZE;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int[] userIds = usersInRange(conn, rangeStart, rangeEnd);
+                Map<Integer, List<String>> genresByUser = genresInRange(conn, rangeStart, rangeEnd);
+                Map<Integer, int[]> ratedByUser = ratedInRange(conn, rangeStart, rangeEnd);
+
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM user_recommendations WHERE user_id >= ? AND user_id < ?")) {
+                    pstmt.setInt(1, rangeStart);
+                    pstmt.setInt(2, rangeEnd);
+                    pstmt.executeUpdate();
+                }
+
+                CopyWriter out = new CopyWriter(conn.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY user_recommendations (user_id, list_size, movie_ids, movies) FROM STDIN"));
+                try {
+                    int[] noRatings = new int[0];
+                    for (int userId : userIds) {
+                        int[] ranks = catalog.recommendRanks(genresByUser.get(userId), ratedByUser.getOrDefault(userId, noRatings), listSize);
+                        StringBuilder movieIds = new StringBuilder("{");
+                        StringBuilder movies = new StringBuilder("{");
+                        for (int i = 0; i < ranks.length; i++) {
+                            if (i > 0) {
+                                movieIds.append(',');
+                                movies.append(',');
+                            }
+                            movieIds.append(catalog.movieId(ranks[i]));
+                            appendArrayElement(movies, catalog.movieJson(ranks[i]));
+                        }
+                        out.field(Integer.toString(userId)).field(Integer.toString(listSize))
+                           .field(movieIds.append('}').toString()).field(movies.append('}').toString());
+                        out.endRow();
+                    }
+                    out.finish();
+                } finally {
+                    out.cancelIfActive();
+                }
+
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT INTO recommendation_run_ranges (run_id, range_start, users) VALUES (?, ?, ?)")) {
+                    pstmt.setInt(1, runId);
+                    pstmt.setInt(2, rangeStart);
+                    pstmt.setInt(3, userIds.length);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                return userIds.length;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static int[] usersInRange(Connection conn, int rangeStart, int rangeEnd) throws SQLException {
+        List<Integer> userIds = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT user_id FROM users WHERE user_id >= ? AND user_id < ? ORDER BY user_id")) {
+            pstmt.setInt(1, rangeStart);
+            pstmt.setInt(2, rangeEnd);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    userIds.add(rs.getInt(1));
+                }
+            }
+        }
+        return userIds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Map<Integer, List<String>> genresInRange(Connection conn, int rangeStart, int rangeEnd) throws SQLException {
+        Map<Integer, List<String>> genresByUser = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT user_id, genre FROM user_favorite_genres WHERE user_id >= ? AND user_id < ?")) {
+            pstmt.setInt(1, rangeStart);
+            pstmt.setInt(2, rangeEnd);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    genresByUser.computeIfAbsent(rs.getInt(1), id -> new ArrayList<>()).add(rs.getString(2));
+                }
+            }
+        }
+        return genresByUser;
+    }
+
+    // One array per user, sorted by movie id for binary search
+    private static Map<Integer, int[]> ratedInRange(Connection conn, int rangeStart, int rangeEnd) throws SQLException {
+        Map<Integer, int[]> ratedByUser = new HashMap<>();
+        String query = """
+            SELECT user_id, array_agg(movie_id ORDER BY movie_id)
+            FROM user_movie_ratings WHERE user_id >= ? AND user_id < ?
+            GROUP BY user_id
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, rangeStart);
+            pstmt.setInt(2, rangeEnd);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Integer[] movieIds = (Integer[]) rs.getArray(2).getArray();
+                    ratedByUser.put(rs.getInt(1), Arrays.stream(movieIds).mapToInt(Integer::intValue).toArray());
+                }
+            }
+        }
+        return ratedByUser;
+    }
+
+    // A quoted element of a PostgreSQL array literal; CopyWriter adds COPY's own escaping on top
+    private static void appendArrayElement(StringBuilder array, String value) {
+        array.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') array.append('\\');
+            array.append(c);
+        }
+        array.append('"');
+    }
+}
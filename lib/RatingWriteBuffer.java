@@ -0,0 +1,273 @@
+// RatingWriteBuffer.java
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded write-behind buffer for ratings. Callers add a rating and return
+ * without touching the database; a flusher thread writes pending ratings to
+ * user_movie_ratings in JDBC batches of upserts, as soon as a batch's worth is
+ * waiting or once the oldest has waited the flush interval.
+ *
+ * A later rating for the same user and movie replaces the pending one, so a
+ * burst of changes costs one row write. A rating stays visible through
+ * pendingFor until the transaction that writes it commits, so a user always
+ * reads their own writes. When capacity ratings are pending, new ones are
+ * refused and the caller should ask the client to retry. The listener hears
+ * of each rating once it is committed, on the flusher thread.
+ */
+class RatingWriteBuffer {
+    private static final String UPSERT = """
+        INSERT INTO user_movie_ratings (user_id, movie_id, rating) VALUES (?, ?, ?)
+        ON CONFLICT (user_id, movie_id) DO UPDATE SET rating = EXCLUDED.rating, rated_at = CURRENT_TIMESTAMP
+    """;
+
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    // Guarded by this. A pending entry is only removed once its row is committed.
+    private final LinkedHashMap<Long, PendingRating> pending = new LinkedHashMap<>();
+    private final Map<Integer, Map<Integer, PendingRating>> pendingByUser = new HashMap<>();
+    private long oldestPendingNanos;
+    private boolean closed;
+
+    private long flushedRatings;
+    private long flushedBatches;
+    private long failedFlushes;
+    private long rejectedRatings;
+
+    private final Thread flusher;
+    private final WriteListener listener;
+
+    interface WriteListener {
+        void onWritten(int userId, int movieId, double rating);
+    }
+
+    private static final class PendingRating {
+        final int userId;
+        final int movieId;
+        final double rating;
+        final long enqueuedNanos;
+
+        PendingRating(int userId, int movieId, double rating, long enqueuedNanos) {
+            this.userId = userId;
+            this.movieId = movieId;
+            this.rating = rating;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    RatingWriteBuffer(int capacity, int batchSize, long flushIntervalMillis, WriteListener listener) {
+        if (capacity <= 0 || batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("capacity, batchSize and flushIntervalMillis must be positive");
+        }
+        this.capacity = capacity;
+        this.batchSize = Math.min(batchSize, capacity);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.listener = listener;
+        this.flusher = new Thread(this::flushLoop, "rating-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues a rating for writing. False when the buffer is full or closed, in
+     * which case nothing was queued.
+     */
+    synchronized boolean offer(int userId, int movieId, double rating) {
+        long key = key(userId, movieId);
+        if (closed || (pending.size() >= capacity && !pending.containsKey(key))) {
+            rejectedRatings++;
+            return false;
+        }
+        long now = System.nanoTime();
+        if (pending.isEmpty()) {
+            // Starts the flush interval
+            oldestPendingNanos = now;
+            notifyAll();
+        }
+        // Re-inserting moves a replaced rating to the back, behind anything already being written,
+        // but it keeps its original wait so that rewriting one rating cannot put off its flush
+        PendingRating replaced = pending.remove(key);
+        PendingRating entry = new PendingRating(userId, movieId, rating, replaced != null ? replaced.enqueuedNanos : now);
+        pending.put(key, entry);
+        pendingByUser.computeIfAbsent(userId, id -> new HashMap<>()).put(movieId, entry);
+        if (pending.size() >= batchSize) {
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Ratings of this user not yet committed, by movie id. Empty when none.
+     */
+    synchronized Map<Integer, Double> pendingFor(int userId) {
+        Map<Integer, PendingRating> entries = pendingByUser.get(userId);
+        if (entries == null) return Collections.emptyMap();
+        Map<Integer, Double> ratings = new HashMap<>();
+        for (PendingRating entry : entries.values()) {
+            ratings.put(entry.movieId, entry.rating);
+        }
+        return ratings;
+    }
+
+    synchronized Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("buffered", pending.size());
+        metrics.put("bufferCapacity", capacity);
+        metrics.put("oldestBufferedAgeMs", pending.isEmpty() ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldestPendingNanos));
+        metrics.put("flushedRatings", flushedRatings);
+        metrics.put("flushedBatches", flushedBatches);
+        metrics.put("failedFlushes", failedFlushes);
+        metrics.put("rejectedRatings", rejectedRatings);
+        return metrics;
+    }
+
+    /**
+     * Refuses new ratings and waits up to the timeout for the pending ones to
+     * be written.
+     */
+    void close(long timeoutMillis) {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<PendingRating> batch;
+            synchronized (this) {
+                try {
+                    while (!closed && pending.size() < batchSize
+                            && (pending.isEmpty() || System.nanoTime() - oldestPendingNanos < flushIntervalNanos)) {
+                        if (pending.isEmpty()) {
+                            wait();
+                        } else {
+                            TimeUnit.NANOSECONDS.timedWait(this, flushIntervalNanos - (System.nanoTime() - oldestPendingNanos));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed && pending.isEmpty()) return;
+                batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+                for (PendingRating entry : pending.values()) {
+                    if (batch.size() == batchSize) break;
+                    batch.add(entry);
+                }
+            }
+
+            List<PendingRating> committed = new ArrayList<>();
+            List<PendingRating> written = write(batch, committed);
+            for (PendingRating entry : committed) {
+                listener.onWritten(entry.userId, entry.movieId, entry.rating);
+            }
+            synchronized (this) {
+                if (!written.isEmpty()) {
+                    for (PendingRating entry : written) {
+                        // A newer rating for the same key stays pending for the next batch
+                        if (pending.remove(key(entry.userId, entry.movieId), entry)) {
+                            Map<Integer, PendingRating> entries = pendingByUser.get(entry.userId);
+                            entries.remove(entry.movieId);
+                            if (entries.isEmpty()) pendingByUser.remove(entry.userId);
+                        }
+                    }
+                    flushedRatings += written.size();
+                    flushedBatches++;
+                    oldestPendingNanos = oldestEnqueuedNanos();
+                }
+                if (written.size() < batch.size()) {
+                    failedFlushes++;
+                    if (closed) return;
+                    // Back off for an interval before retrying the same ratings
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, flushIntervalNanos);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the batch in one transaction and returns the ratings that are
+     * done with, adding those actually saved to committed. When a row breaks a
+     * constraint, such as a movie id that does not exist, the ratings are
+     * written one by one instead and the rejected ones dropped, so one bad
+     * rating cannot hold up the rest forever. Other errors leave the ratings
+     * pending for a retry.
+     */
+    private List<PendingRating> write(List<PendingRating> batch, List<PendingRating> committed) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(UPSERT)) {
+                for (PendingRating entry : batch) {
+                    bind(pstmt, entry);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+                committed.addAll(batch);
+                return batch;
+            } catch (SQLException e) {
+                conn.rollback();
+                if (!isConstraintViolation(e)) throw e;
+            }
+
+            conn.setAutoCommit(true);
+            List<PendingRating> done = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(UPSERT)) {
+                for (PendingRating entry : batch) {
+                    bind(pstmt, entry);
+                    try {
+                        pstmt.executeUpdate();
+                        committed.add(entry);
+                    } catch (SQLException e) {
+                        if (!isConstraintViolation(e)) throw e;
+                        System.err.println("Dropping rating of movie " + entry.movieId + " by user " + entry.userId + ": " + e.getMessage());
+                    }
+                    done.add(entry);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error writing buffered ratings: " + e.getMessage());
+            }
+            return done;
+        } catch (SQLException e) {
+            System.err.println("Error writing " + batch.size() + " buffered ratings: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    // Replaced ratings keep their wait, so the oldest need not be at the head
+    private long oldestEnqueuedNanos() {
+        long oldest = System.nanoTime();
+        for (PendingRating entry : pending.values()) {
+            if (entry.enqueuedNanos - oldest < 0) oldest = entry.enqueuedNanos;
+        }
+        return oldest;
+    }
+
+    private static void bind(PreparedStatement pstmt, PendingRating entry) throws SQLException {
+        pstmt.setInt(1, entry.userId);
+        pstmt.setInt(2, entry.movieId);
+        pstmt.setDouble(3, entry.rating);
+    }
+
+    // SQLSTATE class 23: foreign key, unique or check constraint
+    private static boolean isConstraintViolation(SQLException e) {
+        SQLException cause = e instanceof BatchUpdateException && e.getNextException() != null ? e.getNextException() : e;
+        return cause.getSQLState() != null && cause.getSQLState().startsWith("23");
+    }
+
+    private static long key(int userId, int movieId) {
+        return ((long) userId << 32) | (movieId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,117 @@
+// ServerExecutors.java
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors that run the HTTP server's handlers off its dispatcher thread, so
+ * a slow query blocks only its own request.
+ */
+public class ServerExecutors {
+    private static final byte[] BUSY_BODY = "{\"error\":\"Server busy, retry later\"}".getBytes(StandardCharsets.UTF_8);
+    // Set while a rejected request runs on the shedding thread
+    private static final ThreadLocal<Boolean> SHEDDING = ThreadLocal.withInitial(() -> false);
+    
+    /**
+     * Returns the executor for a mode: "pool", "virtual", or "dispatcher", which
+     * returns null and keeps the JDK default of running handlers on the
+     * dispatcher thread.
+     */
+    public static ExecutorService create(String mode, int threads, int queueSize) {
+        switch (mode.toLowerCase(Locale.ROOT)) {
+            case "pool":
+                return boundedPool(threads, queueSize);
+            case "virtual":
+                return virtualThreadPerRequest();
+            case "dispatcher":
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown server executor mode '" + mode + "' (expected pool, virtual or dispatcher)");
+        }
+    }
+    
+    /**
+     * Fixed set of platform threads over a bounded queue. When both are full the
+     * request is handed to one shedding thread, where overloadFilter() answers
+     * it with a 503 instead of running its handler. The dispatcher never runs a
+     * handler, so it keeps accepting connections however slow the handlers are.
+     */
+    static ExecutorService boundedPool(int threads, int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+                Thread thread = new Thread(runnable, "api-worker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            shedRejected());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    // The JDK server gives the executor no exchange, so the 503 is sent from the filter chain
+    private static RejectedExecutionHandler shedRejected() {
+        ExecutorService shedder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "api-shed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return (request, executor) -> shedder.execute(() -> {
+            SHEDDING.set(true);
+            try {
+                request.run();
+            } finally {
+                SHEDDING.set(false);
+            }
+        });
+    }
+    
+    /**
+     * Answers requests the pool rejected with 503 and Retry-After; every other
+     * request goes on to its handler. Add it to each context.
+     */
+    public static Filter overloadFilter() {
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                if (!SHEDDING.get()) {
+                    chain.doFilter(exchange);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                HttpBodies.send(exchange, 503, "application/json", "no-store", BUSY_BODY);
+            }
+            
+            @Override
+            public String description() {
+                return "Answers 503 to requests rejected by a full executor";
+            }
+        };
+    }
+    
+    /**
+     * One virtual thread per request. A handler blocked on JDBC parks its virtual
+     * thread and frees the carrier, so concurrency is bounded by the connection
+     * pool rather than by a thread count. Looked up reflectively so the same
+     * sources build for JDK 17; it fails fast on runtimes without virtual threads.
+     */
+    static ExecutorService virtualThreadPerRequest() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads need JDK 21 or later, but this is JDK "
+                + Runtime.version().feature() + "; use server.executor=pool");
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+}
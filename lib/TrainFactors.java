@@ -0,0 +1,161 @@
+// TrainFactors.java
+import java.io.IOException;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Offline matrix factorization job. Reads every rating from PostgreSQL, trains
+ * ALS factors, builds an HNSW index over the movie factors and writes both as
+ * a new version to the output directory, where FactorModel.loadLatest picks
+ * them up.
+ *
+ *   java TrainFactors <output-dir> [rank] [iterations] [lambda]
+ *
+ * Prints the time and training RMSE of every iteration, then the latency of
+ * exact scoring of the catalog for a sample of users with the saved model,
+ * and the latency and recall of index searches at a few ef values.
+ */
+public class TrainFactors {
+    private static final int FETCH_SIZE = 10_000;
+    private static final int LATENCY_SAMPLE = 1000;
+    private static final int TOP_K = 10;
+    private static final int[] EF_VALUES = { 16, 32, 64, 128, 256 };
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: java TrainFactors <output-dir> [rank] [iterations] [lambda]");
+            System.exit(1);
+        }
+        Path outputDir = Paths.get(args[0]);
+        int rank = args.length > 1 ? Integer.parseInt(args[1]) : AlsTrainer.DEFAULT_RANK;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : AlsTrainer.DEFAULT_ITERATIONS;
+        double lambda = args.length > 3 ? Double.parseDouble(args[3]) : AlsTrainer.DEFAULT_LAMBDA;
+
+        try {
+            long start = System.nanoTime();
+            RatingMatrix ratings = loadRatings();
+            System.out.printf("Loaded %,d ratings in %.1f s%n", ratings.size(), (System.nanoTime() - start) / 1e9);
+
+            AlsTrainer trainer = new AlsTrainer(rank, lambda, iterations, 42L);
+            FactorModel model = trainer.train(ratings, (iteration, nanos, rmse) ->
+                System.out.printf("Iteration %d: %.0f ms, training RMSE %.4f%n", iteration, nanos / 1e6, rmse));
+
+            long indexStart = System.nanoTime();
+            model = model.withMovieIndex(model.buildMovieIndex(HnswIndex.DEFAULT_M, HnswIndex.DEFAULT_EF_CONSTRUCTION));
+            System.out.printf("Built %s in %.1f s%n", model.getMovieIndex(), (System.nanoTime() - indexStart) / 1e9);
+
+            Path file = model.saveVersioned(outputDir);
+            System.out.println("Wrote " + model + " to " + file);
+
+            FactorModel saved = FactorModel.loadLatest(outputDir);
+            reportScoringLatency(saved, ratings);
+            reportIndexRecall(saved, ratings);
+        } catch (IOException | SQLException e) {
+            System.err.println("Training failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DatabaseConnection.closePool();
+        }
+    }
+
+    private static RatingMatrix loadRatings() throws SQLException {
+        RatingMatrix ratings = new RatingMatrix();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            // pgjdbc only honours the fetch size inside a transaction
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.setFetchSize(FETCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery("SELECT user_id, movie_id, rating FROM user_movie_ratings ORDER BY user_id, movie_id")) {
+                    while (rs.next()) {
+                        ratings.set(rs.getInt(1), rs.getInt(2), rs.getFloat(3));
+                    }
+                }
+            }
+        }
+        ratings.trimToSize();
+        return ratings;
+    }
+
+    // Top-k over the whole catalog, skipping rated movies, for evenly spaced users
+    private static void reportScoringLatency(FactorModel model, RatingMatrix ratings) {
+        int[] userIds = sampleUsers(model, ratings);
+        if (userIds.length == 0) return;
+        long[] nanos = new long[userIds.length];
+
+        // One untimed pass to warm up the JIT
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < userIds.length; i++) {
+                int userId = userIds[i];
+                long start = System.nanoTime();
+                model.topMovies(userId, TOP_K, movieId -> ratings.contains(userId, movieId));
+                nanos[i] = System.nanoTime() - start;
+            }
+        }
+        printLatency("Scoring " + model.getMovieCount() + " movies", nanos, "");
+    }
+
+    // Index searches for the same users at each ef, with recall against the exact top-k
+    private static void reportIndexRecall(FactorModel model, RatingMatrix ratings) {
+        HnswIndex index = model.getMovieIndex();
+        int[] userIds = sampleUsers(model, ratings);
+        if (index == null || userIds.length == 0) return;
+
+        int[][] exact = new int[userIds.length][];
+        for (int i = 0; i < userIds.length; i++) {
+            int userId = userIds[i];
+            exact[i] = ids(model.topMovies(userId, TOP_K, movieId -> ratings.contains(userId, movieId)));
+        }
+        for (int ef : EF_VALUES) {
+            index.setDefaultEf(ef);
+            long[] nanos = new long[userIds.length];
+            long found = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                found = 0;
+                for (int i = 0; i < userIds.length; i++) {
+                    int userId = userIds[i];
+                    long start = System.nanoTime();
+                    TopKSelector top = model.approximateTopMovies(userId, TOP_K, movieId -> ratings.contains(userId, movieId));
+                    nanos[i] = System.nanoTime() - start;
+                    for (int n = 0; n < top.size(); n++) {
+                        if (Arrays.binarySearch(exact[i], top.id(n)) >= 0) found++;
+                    }
+                }
+            }
+            long expected = Arrays.stream(exact).mapToLong(ids -> ids.length).sum();
+            printLatency("Index search, ef " + ef, nanos,
+                         String.format(", recall@%d %.3f", TOP_K, expected > 0 ? (double) found / expected : 1.0));
+        }
+        index.setDefaultEf(HnswIndex.DEFAULT_EF);
+    }
+
+    // Evenly spaced users the model was trained on
+    private static int[] sampleUsers(FactorModel model, RatingMatrix ratings) {
+        int[] userIds = IntStream.range(0, ratings.userIdBound()).filter(model::hasUser).toArray();
+        int samples = Math.min(LATENCY_SAMPLE, userIds.length);
+        int[] sample = new int[samples];
+        for (int i = 0; i < samples; i++) {
+            sample[i] = userIds[(int) ((long) i * userIds.length / samples)];
+        }
+        return sample;
+    }
+
+    // Sorted ids, for membership tests
+    private static int[] ids(TopKSelector top) {
+        int[] ids = new int[top.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = top.id(i);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static void printLatency(String label, long[] nanos, String suffix) {
+        Arrays.sort(nanos);
+        int samples = nanos.length;
+        System.out.printf("%s for %d users: mean %.0f us, p50 %.0f us, p99 %.0f us%s%n",
+                          label, samples, Arrays.stream(nanos).average().orElse(0) / 1e3,
+                          nanos[samples / 2] / 1e3, nanos[Math.min(samples - 1, (int) (samples * 0.99))] / 1e3, suffix);
+    }
+}
@@ -1,5 +1,6 @@
 package config;
 
+import io.github.cdimascio.dotenv.Dotenv;
 import java.io.*;
 import java.util.Properties;
 
@@ -46,6 +47,46 @@ public class Config {
         if (debug != null) {
             properties.setProperty("app.debug", debug);
         }
+        
+        String executor = System.getenv("SERVER_EXECUTOR");
+        if (executor != null) {
+            properties.setProperty("server.executor", executor);
+        }
+        
+        String threads = System.getenv("SERVER_THREADS");
+        if (threads != null) {
+            properties.setProperty("server.threads", threads);
+        }
+        
+        loadDatabaseEnvironment();
+    }
+    
+    // Database settings from .env in the working directory; real environment variables win
+    private void loadDatabaseEnvironment() {
+        Dotenv dotenv = Dotenv.configure().ignoreIfMissing().ignoreIfMalformed().load();
+        
+        String host = dotenv.get("DB_HOST");
+        String port = dotenv.get("DB_PORT");
+        String name = dotenv.get("DB_NAME");
+        if (host != null || port != null || name != null) {
+            properties.setProperty("database.driver", "org.postgresql.Driver");
+            properties.setProperty("database.url", String.format("jdbc:postgresql://%s:%s/%s",
+                host != null ? host : "localhost", port != null ? port : "5432", name != null ? name : "movie_db"));
+        }
+        
+        setFromEnvironment(dotenv, "DB_USER", "database.username");
+        setFromEnvironment(dotenv, "DB_PASSWORD", "database.password");
+        setFromEnvironment(dotenv, "DB_POOL_MAX_SIZE", "database.pool.maximum-size");
+        setFromEnvironment(dotenv, "DB_POOL_MIN_IDLE", "database.pool.minimum-idle");
+        setFromEnvironment(dotenv, "DB_POOL_CONNECTION_TIMEOUT_MS", "database.pool.connection-timeout-ms");
+        setFromEnvironment(dotenv, "DB_POOL_LEAK_DETECTION_MS", "database.pool.leak-detection-threshold-ms");
+    }
+    
+    private void setFromEnvironment(Dotenv dotenv, String variable, String key) {
+        String value = dotenv.get(variable);
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
     }
     
     public String getProperty(String key) {
@@ -82,6 +123,46 @@ public class Config {
         return getIntProperty("recommendations.max-results", 10);
     }
     
+    public int getRecommendationCacheMaxEntries() {
+        return getIntProperty("recommendations.cache.max-entries", 10000);
+    }
+    
+    public int getRecommendationCacheTtlSeconds() {
+        return getIntProperty("recommendations.cache.ttl-seconds", 600);
+    }
+    
+    public int getPrecomputedRecommendationsMaxAgeSeconds() {
+        return getIntProperty("recommendations.precompute.max-age-seconds", 86400);
+    }
+    
+    public int getPrecomputedRecommendationsListSize() {
+        return getIntProperty("recommendations.precompute.list-size", 50);
+    }
+    
+    public int getRatingBufferCapacity() {
+        return getIntProperty("ratings.write-buffer.capacity", 10000);
+    }
+    
+    public int getRatingBufferBatchSize() {
+        return getIntProperty("ratings.write-buffer.batch-size", 500);
+    }
+    
+    public int getRatingBufferFlushIntervalMillis() {
+        return getIntProperty("ratings.write-buffer.flush-interval-ms", 200);
+    }
+    
+    public int getMovieCacheMaxEntries() {
+        return getIntProperty("movies.cache.max-entries", 10000);
+    }
+    
+    public int getMovieCacheTtlSeconds() {
+        return getIntProperty("movies.cache.ttl-seconds", 3600);
+    }
+    
+    public int getMovieCacheRefreshAfterSeconds() {
+        return getIntProperty("movies.cache.refresh-after-seconds", 600);
+    }
+    
     public double getMinRating() {
         try {
             return Double.parseDouble(getProperty("recommendations.min-rating", "6.0"));
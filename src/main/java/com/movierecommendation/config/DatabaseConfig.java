@@ -4,18 +4,62 @@ public class DatabaseConfig {
     private static final Config config = Config.getInstance();
     
     public static String getDriver() {
-        return config.getProperty("database.driver", "org.sqlite.JDBC");
+        return config.getProperty("database.driver", "org.postgresql.Driver");
     }
     
     public static String getUrl() {
-        return config.getProperty("database.url", "jdbc:sqlite:data/movies.db");
+        return config.getProperty("database.url", "jdbc:postgresql://localhost:5432/movie_db");
     }
     
     public static String getUsername() {
-        return config.getProperty("database.username", "");
+        return config.getProperty("database.username", "postgres");
     }
     
     public static String getPassword() {
         return config.getProperty("database.password", "");
     }
-}
\ No newline at end of file
+    
+    // Connection pool
+    public static int getPoolMaximumSize() {
+        return config.getIntProperty("database.pool.maximum-size", 10);
+    }
+    
+    public static int getPoolMinimumIdle() {
+        return config.getIntProperty("database.pool.minimum-idle", 2);
+    }
+    
+    public static int getPoolConnectionTimeoutMs() {
+        return config.getIntProperty("database.pool.connection-timeout-ms", 5000);
+    }
+    
+    public static int getPoolIdleTimeoutMs() {
+        return config.getIntProperty("database.pool.idle-timeout-ms", 600000);
+    }
+    
+    public static int getPoolMaxLifetimeMs() {
+        return config.getIntProperty("database.pool.max-lifetime-ms", 1800000);
+    }
+    
+    // 0 disables leak detection
+    public static int getPoolLeakDetectionThresholdMs() {
+        return config.getIntProperty("database.pool.leak-detection-threshold-ms", 30000);
+    }
+    
+    // Server-side prepared statements: uses before a statement is prepared, and the per-connection cache
+    public static int getPrepareThreshold() {
+        return config.getIntProperty("database.pool.prepare-threshold", 3);
+    }
+    
+    public static int getStatementCacheQueries() {
+        return config.getIntProperty("database.pool.statement-cache-queries", 256);
+    }
+    
+    public static int getStatementCacheSizeMiB() {
+        return config.getIntProperty("database.pool.statement-cache-size-mib", 5);
+    }
+    
+    // Rows fetched per round trip by cursor-based reads
+    public static int getFetchSize() {
+        return config.getIntProperty("database.fetch-size", 1000);
+    }
+}
@@ -0,0 +1,18 @@
+package config;
+
+public class ServerConfig {
+    private static final Config config = Config.getInstance();
+    
+    // How HTTP handlers run: pool (bounded platform threads), virtual (JDK 21+) or dispatcher (single thread)
+    public static String getExecutorMode() {
+        return config.getProperty("server.executor", "pool");
+    }
+    
+    public static int getThreads() {
+        return config.getIntProperty("server.threads", 16);
+    }
+    
+    public static int getQueueSize() {
+        return config.getIntProperty("server.queue-size", 256);
+    }
+}
@@ -0,0 +1,148 @@
+package com.movierecommendation.dao;
+
+import com.movierecommendation.model.Movie;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MovieDAO that answers findById and findAllByIds from a bounded in-memory
+ * cache of movies by id (see TinyLfuCache), reading through to the wrapped
+ * DAO on a miss; a multi-get loads all its misses with one findAllByIds.
+ * update and deleteById drop the movie from the cache once the write is
+ * done. Movies changed by other writers are seen once their entry expires,
+ * or sooner through invalidate. Other queries go straight to the wrapped DAO.
+ *
+ * Callers get their own copy of each movie, so changing one does not change
+ * the cached entry.
+ */
+public class CachingMovieDAO implements MovieDAO {
+    private final MovieDAO delegate;
+    private final TinyLfuCache<Long, Movie> cache;
+
+    // Hot entries are refreshed on a single daemon thread
+    public CachingMovieDAO(MovieDAO delegate, int maxEntries, long ttlMillis, long refreshAfterMillis) {
+        this(delegate, maxEntries, ttlMillis, refreshAfterMillis, newRefreshExecutor());
+    }
+
+    public CachingMovieDAO(MovieDAO delegate, int maxEntries, long ttlMillis, long refreshAfterMillis, Executor refreshExecutor) {
+        this.delegate = delegate;
+        this.cache = new TinyLfuCache<>(maxEntries, ttlMillis, refreshAfterMillis,
+                                        id -> delegate.findById(id).orElse(null), this::loadAll, refreshExecutor);
+    }
+
+    private static ExecutorService newRefreshExecutor() {
+        return Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "movie-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private Map<Long, Movie> loadAll(Set<Long> ids) {
+        Map<Long, Movie> moviesById = new HashMap<>();
+        for (Movie movie : delegate.findAllByIds(ids)) {
+            moviesById.put(movie.getId(), movie);
+        }
+        return moviesById;
+    }
+
+    @Override
+    public void save(Movie movie) {
+        delegate.save(movie);
+    }
+
+    @Override
+    public Optional<Movie> findById(Long id) {
+        return Optional.ofNullable(cache.get(id)).map(CachingMovieDAO::copy);
+    }
+
+    @Override
+    public List<Movie> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Movie> findAllByIds(Collection<Long> ids) {
+        List<Movie> movies = new ArrayList<>();
+        for (Movie movie : cache.getAll(ids).values()) {
+            movies.add(copy(movie));
+        }
+        return movies;
+    }
+
+    @Override
+    public List<Movie> findByTitle(String title) {
+        return delegate.findByTitle(title);
+    }
+
+    @Override
+    public List<Movie> findByGenre(String genre) {
+        return delegate.findByGenre(genre);
+    }
+
+    @Override
+    public List<Movie> findByYear(int year) {
+        return delegate.findByYear(year);
+    }
+
+    @Override
+    public List<Movie> findByYearRange(int startYear, int endYear, int limit) {
+        return delegate.findByYearRange(startYear, endYear, limit);
+    }
+
+    @Override
+    public List<Movie> findByRatingRange(double minRating, double maxRating) {
+        return delegate.findByRatingRange(minRating, maxRating);
+    }
+
+    @Override
+    public void update(Movie movie) {
+        delegate.update(movie);
+        cache.invalidate(movie.getId());
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        delegate.deleteById(id);
+        cache.invalidate(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return delegate.existsById(id);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public double getAverageRating(Long movieId) {
+        return delegate.getAverageRating(movieId);
+    }
+
+    // For movies changed without going through this DAO
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Size, hit rate, load latency, eviction and refresh counts since
+     * startup. Times are in milliseconds.
+     */
+    public Map<String, Number> getMetrics() {
+        return cache.getMetrics();
+    }
+
+    private static Movie copy(Movie movie) {
+        return new Movie(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getReleaseYear(), movie.getDirector(),
+                         movie.getRating(), movie.getDescription(), movie.getPosterUrl(), movie.getCreatedAt());
+    }
+}
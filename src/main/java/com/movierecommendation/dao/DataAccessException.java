@@ -0,0 +1,13 @@
+package com.movierecommendation.dao;
+
+/**
+ * Unchecked wrapper for a database error raised inside a DAO, whose
+ * interfaces do not declare SQLException.
+ */
+public class DataAccessException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,74 @@
+package com.movierecommendation.dao;
+
+/**
+ * Approximate access counts for cache admission: a count-min sketch of four
+ * rows of 4-bit counters that saturate at 15, packed sixteen to a long. Once
+ * ten times the width of the sketch has been recorded, every counter is
+ * halved, so the counts follow recent popularity rather than all-time totals.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    // Keeps the low three bits of each counter after a shift right by one
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private final long[] table;
+    private final int width;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        // A power of two, so a row index is a mask
+        width = Integer.highestOneBit(Math.max(2, Math.min(expectedEntries, 1 << 26)) - 1) << 1;
+        table = new long[Math.max(1, DEPTH * width / 16)];
+        sampleSize = 10 * width;
+    }
+
+    int frequency(Object key) {
+        int hash = key.hashCode();
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, count(index(hash, row)));
+        }
+        return min;
+    }
+
+    void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int i = index(hash, row);
+            if (count(i) < MAX_COUNT) {
+                table[i >>> 4] += 1L << shift(i);
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            halve();
+        }
+    }
+
+    private int count(int i) {
+        return (int) (table[i >>> 4] >>> shift(i)) & MAX_COUNT;
+    }
+
+    // Bit offset of counter i within its long
+    private static int shift(int i) {
+        return (i & 15) << 2;
+    }
+
+    // Counter number, row-major over all rows
+    private int index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return row * width + ((int) h & (width - 1));
+    }
+
+    private void halve() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+}
@@ -0,0 +1,257 @@
+package com.movierecommendation.dao;
+
+import com.movierecommendation.model.Movie;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.*;
+import javax.sql.DataSource;
+
+/**
+ * MovieDAO on PostgreSQL's movies table.
+ *
+ * Every statement is a constant string, including the multi-get, which binds
+ * its ids as one array for = ANY(?) rather than growing an IN list, so the
+ * driver's per-connection statement cache prepares each statement once and
+ * reuses its plan for any number of ids. Rows map into Movie by column
+ * position with typed getters. The table has no poster or creation time
+ * columns, so posterUrl and createdAt stay null.
+ */
+public class JdbcMovieDAO implements MovieDAO {
+    private static final String COLUMNS = "id, title, genre, year, director, rating, description";
+    // Best rated first, ties by id, as the rating indexes are ordered
+    private static final String BEST_FIRST = " ORDER BY rating DESC, id";
+
+    private static final String INSERT = """
+        INSERT INTO movies (title, genre, year, director, rating, description) VALUES (?, ?, ?, ?, ?, ?)
+        RETURNING id
+    """;
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM movies WHERE id = ?";
+    private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM movies ORDER BY id";
+    private static final String SELECT_BY_IDS = "SELECT " + COLUMNS + " FROM movies WHERE id = ANY(?)";
+    private static final String SELECT_BY_TITLE = "SELECT " + COLUMNS + " FROM movies WHERE title ILIKE ? ESCAPE '\\'" + BEST_FIRST;
+    private static final String SELECT_BY_GENRE = "SELECT " + COLUMNS + " FROM movies WHERE genre = ?" + BEST_FIRST;
+    private static final String SELECT_BY_YEAR = "SELECT " + COLUMNS + " FROM movies WHERE year = ?" + BEST_FIRST;
+    private static final String SELECT_BY_YEAR_RANGE = "SELECT " + COLUMNS + " FROM movies WHERE year BETWEEN ? AND ?" + BEST_FIRST + " LIMIT ?";
+    private static final String SELECT_BY_RATING_RANGE = "SELECT " + COLUMNS + " FROM movies WHERE rating BETWEEN ? AND ?" + BEST_FIRST;
+    private static final String UPDATE = """
+        UPDATE movies SET title = ?, genre = ?, year = ?, director = ?, rating = ?, description = ?
+        WHERE id = ?
+    """;
+    private static final String DELETE = "DELETE FROM movies WHERE id = ?";
+    private static final String EXISTS = "SELECT EXISTS (SELECT 1 FROM movies WHERE id = ?)";
+    private static final String COUNT = "SELECT COUNT(*) FROM movies";
+    private static final String AVERAGE_RATING = "SELECT AVG(rating) FROM user_movie_ratings WHERE movie_id = ?";
+
+    private final DataSource dataSource;
+
+    public JdbcMovieDAO(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Sets the generated id
+    @Override
+    public void save(Movie movie) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT)) {
+            bindFields(pstmt, movie);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                movie.setId(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error saving " + movie.getTitle(), e);
+        }
+    }
+
+    @Override
+    public Optional<Movie> findById(Long id) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_ID)) {
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapRow(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error reading movie " + id, e);
+        }
+    }
+
+    @Override
+    public List<Movie> findAll() {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_ALL);
+             ResultSet rs = pstmt.executeQuery()) {
+            return mapRows(rs);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error reading movies", e);
+        }
+    }
+
+    @Override
+    public List<Movie> findAllByIds(Collection<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        if (distinct.isEmpty()) return new ArrayList<>();
+
+        Map<Long, Movie> moviesById = new HashMap<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_IDS)) {
+            pstmt.setArray(1, conn.createArrayOf("bigint", distinct.toArray(new Long[0])));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Movie movie = mapRow(rs);
+                    moviesById.put(movie.getId(), movie);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error reading " + distinct.size() + " movies", e);
+        }
+
+        List<Movie> movies = new ArrayList<>(moviesById.size());
+        for (Long id : distinct) {
+            Movie movie = moviesById.get(id);
+            if (movie != null) movies.add(movie);
+        }
+        return movies;
+    }
+
+    // Case-insensitive substring match
+    @Override
+    public List<Movie> findByTitle(String title) {
+        String pattern = "%" + title.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return query(SELECT_BY_TITLE, "title " + title, pstmt -> pstmt.setString(1, pattern));
+    }
+
+    @Override
+    public List<Movie> findByGenre(String genre) {
+        return query(SELECT_BY_GENRE, "genre " + genre, pstmt -> pstmt.setString(1, genre));
+    }
+
+    @Override
+    public List<Movie> findByYear(int year) {
+        return query(SELECT_BY_YEAR, "year " + year, pstmt -> pstmt.setInt(1, year));
+    }
+
+    @Override
+    public List<Movie> findByYearRange(int startYear, int endYear, int limit) {
+        return query(SELECT_BY_YEAR_RANGE, "years " + startYear + "-" + endYear, pstmt -> {
+            pstmt.setInt(1, startYear);
+            pstmt.setInt(2, endYear);
+            pstmt.setInt(3, limit);
+        });
+    }
+
+    @Override
+    public List<Movie> findByRatingRange(double minRating, double maxRating) {
+        // Bound as numeric like the column; a double would make the column be cast and skip the index
+        return query(SELECT_BY_RATING_RANGE, "ratings " + minRating + "-" + maxRating, pstmt -> {
+            pstmt.setBigDecimal(1, BigDecimal.valueOf(minRating));
+            pstmt.setBigDecimal(2, BigDecimal.valueOf(maxRating));
+        });
+    }
+
+    @Override
+    public void update(Movie movie) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE)) {
+            bindFields(pstmt, movie);
+            pstmt.setLong(7, movie.getId());
+            if (pstmt.executeUpdate() == 0) {
+                throw new DataAccessException("No movie " + movie.getId(), null);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error updating movie " + movie.getId(), e);
+        }
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(DELETE)) {
+            pstmt.setLong(1, id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error deleting movie " + id, e);
+        }
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(EXISTS)) {
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error checking movie " + id, e);
+        }
+    }
+
+    @Override
+    public long count() {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(COUNT);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error counting movies", e);
+        }
+    }
+
+    // Mean of the users' ratings, 0 when nobody has rated the movie
+    @Override
+    public double getAverageRating(Long movieId) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(AVERAGE_RATING)) {
+            pstmt.setLong(1, movieId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getDouble(1);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error averaging ratings of movie " + movieId, e);
+        }
+    }
+
+    private interface Binder {
+        void bind(PreparedStatement pstmt) throws SQLException;
+    }
+
+    private List<Movie> query(String sql, String description, Binder binder) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            binder.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return mapRows(rs);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error reading movies by " + description, e);
+        }
+    }
+
+    // Parameters 1-6 of INSERT and UPDATE
+    private static void bindFields(PreparedStatement pstmt, Movie movie) throws SQLException {
+        pstmt.setString(1, movie.getTitle());
+        pstmt.setString(2, movie.getGenre());
+        pstmt.setInt(3, movie.getReleaseYear());
+        pstmt.setString(4, movie.getDirector());
+        pstmt.setBigDecimal(5, movie.getRating());
+        pstmt.setString(6, movie.getDescription());
+    }
+
+    private static List<Movie> mapRows(ResultSet rs) throws SQLException {
+        List<Movie> movies = new ArrayList<>();
+        while (rs.next()) {
+            movies.add(mapRow(rs));
+        }
+        return movies;
+    }
+
+    // Columns in the order of COLUMNS
+    private static Movie mapRow(ResultSet rs) throws SQLException {
+        return new Movie(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getString(5),
+                         rs.getBigDecimal(6), rs.getString(7), null, null);
+    }
+}
@@ -0,0 +1,249 @@
+package com.movierecommendation.dao;
+
+import com.movierecommendation.model.UserRating;
+import config.DatabaseConfig;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+
+/**
+ * UserRatingDAO on PostgreSQL's user_movie_ratings table.
+ *
+ * Connections come from the pool behind the DataSource, and every statement
+ * is a constant string, so the driver's per-connection statement cache
+ * prepares each one once per connection. The bulk methods send their ids and
+ * values as arrays and expand them with UNNEST, one statement and one round
+ * trip however long the list. Per-movie reads go through a cursor that fetches
+ * fetchSize rows at a time, so a popular movie's ratings are never all in
+ * memory at once unless the caller collects them.
+ */
+public class JdbcUserRatingDAO implements UserRatingDAO {
+    private static final String COLUMNS = "id, user_id, movie_id, rating, review, rated_at";
+
+    private static final String UPSERT = """
+        INSERT INTO user_movie_ratings (user_id, movie_id, rating, review) VALUES (?, ?, ?, ?)
+        ON CONFLICT (user_id, movie_id) DO UPDATE SET rating = EXCLUDED.rating, review = EXCLUDED.review, rated_at = CURRENT_TIMESTAMP
+        RETURNING id, rated_at
+    """;
+    private static final String UPSERT_MANY = """
+        INSERT INTO user_movie_ratings (user_id, movie_id, rating, review)
+        SELECT * FROM UNNEST(?::bigint[], ?::bigint[], ?::float8[], ?::text[])
+        ON CONFLICT (user_id, movie_id) DO UPDATE SET rating = EXCLUDED.rating, review = EXCLUDED.review, rated_at = CURRENT_TIMESTAMP
+        RETURNING id, user_id, movie_id, rated_at
+    """;
+    private static final String SELECT_ONE = "SELECT " + COLUMNS + " FROM user_movie_ratings WHERE user_id = ? AND movie_id = ?";
+    private static final String SELECT_BY_USER = "SELECT " + COLUMNS + " FROM user_movie_ratings WHERE user_id = ? ORDER BY movie_id";
+    private static final String SELECT_BY_USERS = """
+        SELECT r.id, r.user_id, r.movie_id, r.rating, r.review, r.rated_at
+        FROM UNNEST(?::bigint[]) AS u(user_id)
+        JOIN user_movie_ratings r ON r.user_id = u.user_id
+        ORDER BY r.user_id, r.movie_id
+    """;
+    private static final String SELECT_BY_MOVIE = "SELECT " + COLUMNS + " FROM user_movie_ratings WHERE movie_id = ? ORDER BY user_id";
+    private static final String UPDATE = """
+        UPDATE user_movie_ratings SET rating = ?, review = ?, rated_at = CURRENT_TIMESTAMP
+        WHERE user_id = ? AND movie_id = ?
+        RETURNING id, rated_at
+    """;
+    private static final String DELETE = "DELETE FROM user_movie_ratings WHERE user_id = ? AND movie_id = ?";
+
+    private final DataSource dataSource;
+    private final int fetchSize;
+
+    public JdbcUserRatingDAO(DataSource dataSource) {
+        this(dataSource, DatabaseConfig.getFetchSize());
+    }
+
+    public JdbcUserRatingDAO(DataSource dataSource, int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("fetchSize must be positive");
+        }
+        this.dataSource = dataSource;
+        this.fetchSize = fetchSize;
+    }
+
+    // Inserts, or replaces the user's earlier rating of the movie; sets id and createdAt
+    @Override
+    public void addUserRating(UserRating userRating) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPSERT)) {
+            pstmt.setLong(1, userRating.getUserId());
+            pstmt.setLong(2, userRating.getMovieId());
+            pstmt.setDouble(3, userRating.getRating());
+            pstmt.setString(4, userRating.getReview());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                userRating.setId(rs.getLong(1));
+                userRating.setCreatedAt(rs.getObject(2, LocalDateTime.class));
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error saving " + userRating, e);
+        }
+    }
+
+    @Override
+    public void addUserRatings(List<UserRating> userRatings) {
+        // A statement may touch each row once, so only the last rating of a user and movie is sent
+        Map<List<Long>, UserRating> latest = new LinkedHashMap<>();
+        for (UserRating userRating : userRatings) {
+            latest.put(List.of(userRating.getUserId(), userRating.getMovieId()), userRating);
+        }
+        if (latest.isEmpty()) return;
+
+        int n = latest.size();
+        Long[] userIds = new Long[n];
+        Long[] movieIds = new Long[n];
+        Double[] ratings = new Double[n];
+        String[] reviews = new String[n];
+        int i = 0;
+        for (UserRating userRating : latest.values()) {
+            userIds[i] = userRating.getUserId();
+            movieIds[i] = userRating.getMovieId();
+            ratings[i] = userRating.getRating();
+            reviews[i] = userRating.getReview();
+            i++;
+        }
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPSERT_MANY)) {
+            pstmt.setArray(1, conn.createArrayOf("bigint", userIds));
+            pstmt.setArray(2, conn.createArrayOf("bigint", movieIds));
+            pstmt.setArray(3, conn.createArrayOf("float8", ratings));
+            pstmt.setArray(4, conn.createArrayOf("text", reviews));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    UserRating saved = latest.get(List.of(rs.getLong(2), rs.getLong(3)));
+                    saved.setId(rs.getLong(1));
+                    saved.setCreatedAt(rs.getObject(4, LocalDateTime.class));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error saving " + n + " ratings", e);
+        }
+    }
+
+    @Override
+    public UserRating getUserRating(Long userId, Long movieId) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_ONE)) {
+            pstmt.setLong(1, userId);
+            pstmt.setLong(2, movieId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapRow(rs) : null;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error reading rating of movie " + movieId + " by user " + userId, e);
+        }
+    }
+
+    @Override
+    public List<UserRating> getUserRatingsByUser(Long userId) {
+        List<UserRating> ratings = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_USER)) {
+            pstmt.setLong(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ratings.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error reading ratings of user " + userId, e);
+        }
+        return ratings;
+    }
+
+    @Override
+    public Map<Long, List<UserRating>> getUserRatingsByUsers(Collection<Long> userIds) {
+        Map<Long, List<UserRating>> ratingsByUser = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            ratingsByUser.putIfAbsent(userId, new ArrayList<>());
+        }
+        if (ratingsByUser.isEmpty()) return ratingsByUser;
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_USERS)) {
+            pstmt.setArray(1, conn.createArrayOf("bigint", ratingsByUser.keySet().toArray(new Long[0])));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    UserRating rating = mapRow(rs);
+                    ratingsByUser.get(rating.getUserId()).add(rating);
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error reading ratings of " + ratingsByUser.size() + " users", e);
+        }
+        return ratingsByUser;
+    }
+
+    @Override
+    public List<UserRating> getUserRatingsByMovie(Long movieId) {
+        List<UserRating> ratings = new ArrayList<>();
+        forEachUserRatingByMovie(movieId, ratings::add);
+        return ratings;
+    }
+
+    @Override
+    public void forEachUserRatingByMovie(Long movieId, Consumer<UserRating> action) {
+        try (Connection conn = dataSource.getConnection()) {
+            // pgjdbc only reads through a cursor inside a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_MOVIE)) {
+                pstmt.setFetchSize(fetchSize);
+                pstmt.setLong(1, movieId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        action.accept(mapRow(rs));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error reading ratings of movie " + movieId, e);
+        }
+    }
+
+    // Updates rating and review of an existing rating; sets id and createdAt
+    @Override
+    public void updateUserRating(UserRating userRating) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE)) {
+            pstmt.setDouble(1, userRating.getRating());
+            pstmt.setString(2, userRating.getReview());
+            pstmt.setLong(3, userRating.getUserId());
+            pstmt.setLong(4, userRating.getMovieId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new DataAccessException("No rating of movie " + userRating.getMovieId() + " by user " + userRating.getUserId(), null);
+                }
+                userRating.setId(rs.getLong(1));
+                userRating.setCreatedAt(rs.getObject(2, LocalDateTime.class));
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error updating " + userRating, e);
+        }
+    }
+
+    @Override
+    public void deleteUserRating(Long userId, Long movieId) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(DELETE)) {
+            pstmt.setLong(1, userId);
+            pstmt.setLong(2, movieId);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error deleting rating of movie " + movieId + " by user " + userId, e);
+        }
+    }
+
+    // Columns in the order of COLUMNS
+    private static UserRating mapRow(ResultSet rs) throws SQLException {
+        return new UserRating(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getDouble(4),
+                              rs.getString(5), rs.getObject(6, LocalDateTime.class));
+    }
+}
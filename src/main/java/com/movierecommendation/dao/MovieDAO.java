@@ -1,7 +1,8 @@
 // dao/MovieDAO.java
-package com.movieapp.dao;
+package com.movierecommendation.dao;
 
-import com.movieapp.model.Movie;
+import com.movierecommendation.model.Movie;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,9 +13,14 @@ public interface MovieDAO {
     // Read
     Optional<Movie> findById(Long id);
     List<Movie> findAll();
+    // One query for all ids; movies come back in the order asked for, unknown ids skipped
+    List<Movie> findAllByIds(Collection<Long> ids);
     List<Movie> findByTitle(String title);
     List<Movie> findByGenre(String genre);
+    // Range queries return movies best rated first (ties by id), which lets
+    // implementations read the year/rating indexes in order instead of sorting
     List<Movie> findByYear(int year);
+    List<Movie> findByYearRange(int startYear, int endYear, int limit);
     List<Movie> findByRatingRange(double minRating, double maxRating);
     
     // Update
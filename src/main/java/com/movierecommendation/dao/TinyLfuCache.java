@@ -0,0 +1,418 @@
+package com.movierecommendation.dao;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through cache with W-TinyLFU eviction. New entries go to a
+ * small LRU window (1% of maxEntries). An entry pushed out of the window
+ * only gets into the main area by displacing its least recently used
+ * probationary entry, and only when the frequency sketch says it has been
+ * asked for more often lately. One pass over many keys read once therefore
+ * leaves the frequently read set in place. A probationary entry read again
+ * moves up to the protected segment, 80% of the main area.
+ *
+ * Entries expire ttl after they were loaded. A read of an entry older than
+ * refreshAfter whose key is read often enough reloads it on the refresh
+ * executor and meanwhile returns the current value, so hot keys do not
+ * miss when they expire. Null loads are not stored. Loads run outside the
+ * lock, and one that overlapped an invalidation of its key, or of
+ * everything, is returned but not stored, so a read after an invalidation
+ * never sees the older value. Invalidating one key leaves loads of other
+ * keys alone.
+ */
+final class TinyLfuCache<K, V> {
+    // Only keys with about this many recent reads are refreshed ahead
+    static final int REFRESH_MIN_FREQUENCY = 3;
+
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Loading {
+        int count;
+        long version; // invalidations of the key since its first load in progress started
+    }
+
+    private static final class Node<V> {
+        V value;
+        long loadedAt;
+        Segment segment = Segment.WINDOW;
+        boolean refreshing;
+
+        Node(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final Function<K, V> loader;
+    private final Function<Set<K>, Map<K, V>> bulkLoader;
+    private final Executor refreshExecutor;
+    private final int maxEntries;
+    private final int windowMax;
+    private final int protectedMax;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+
+    // Guarded by this. Each segment is ordered least recently used first.
+    private final FrequencySketch sketch;
+    private final Map<K, Node<V>> nodes = new HashMap<>();
+    private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<>();
+    // Keys with loads in progress; only their invalidations need tracking
+    private final Map<K, Loading> loadsByKey = new HashMap<>();
+    // Bumped by invalidateAll
+    private long invalidationEpoch;
+
+    private long hits;
+    private long misses;
+    private long loads;
+    private long loadFailures;
+    private long loadNanos;
+    private long maxLoadNanos;
+    private long evictions;
+    private long rejections;
+    private long expirations;
+    private long invalidations;
+    private long refreshes;
+    private long refreshFailures;
+
+    /**
+     * refreshAfterMillis of 0, or not below ttlMillis, turns refresh-ahead
+     * off. The bulk loader may leave out keys that have no value.
+     */
+    TinyLfuCache(int maxEntries, long ttlMillis, long refreshAfterMillis, Function<K, V> loader,
+                 Function<Set<K>, Map<K, V>> bulkLoader, Executor refreshExecutor) {
+        if (maxEntries <= 0 || ttlMillis <= 0 || refreshAfterMillis < 0) {
+            throw new IllegalArgumentException("maxEntries and ttlMillis must be positive and refreshAfterMillis not negative");
+        }
+        this.loader = loader;
+        this.bulkLoader = bulkLoader;
+        this.refreshExecutor = refreshExecutor;
+        this.maxEntries = maxEntries;
+        this.windowMax = Math.max(1, maxEntries / 100);
+        this.protectedMax = (maxEntries - windowMax) * 80 / 100;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.refreshAfterNanos = refreshAfterMillis > 0 && refreshAfterMillis < ttlMillis
+            ? TimeUnit.MILLISECONDS.toNanos(refreshAfterMillis) : Long.MAX_VALUE;
+        this.sketch = new FrequencySketch(maxEntries);
+    }
+
+    /**
+     * The value for key, loaded and stored on a miss. Null when the loader
+     * has none.
+     */
+    V get(K key) {
+        List<K> toRefresh = new ArrayList<>(1);
+        Loading loading;
+        long version;
+        long epoch;
+        synchronized (this) {
+            Node<V> node = lookup(key, toRefresh);
+            if (node != null) {
+                V value = node.value;
+                scheduleRefresh(toRefresh);
+                return value;
+            }
+            loading = startLoad(key);
+            version = loading.version;
+            epoch = invalidationEpoch;
+        }
+        V value = null;
+        try {
+            value = load(() -> loader.apply(key));
+        } finally {
+            synchronized (this) {
+                endLoad(key, loading);
+                if (value != null && version == loading.version && epoch == invalidationEpoch) {
+                    store(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * The values for keys that have one, in the order of keys. All misses
+     * are loaded with one call of the bulk loader.
+     */
+    Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> found = new LinkedHashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        List<K> toRefresh = new ArrayList<>();
+        Map<K, Loading> loadings = new HashMap<>();
+        Map<K, Long> versions = new HashMap<>();
+        long epoch;
+        synchronized (this) {
+            for (K key : keys) {
+                if (found.containsKey(key) || missing.contains(key)) continue;
+                Node<V> node = lookup(key, toRefresh);
+                if (node != null) {
+                    found.put(key, node.value);
+                } else {
+                    missing.add(key);
+                }
+            }
+            for (K key : missing) {
+                Loading loading = startLoad(key);
+                loadings.put(key, loading);
+                versions.put(key, loading.version);
+            }
+            epoch = invalidationEpoch;
+            scheduleRefresh(toRefresh);
+        }
+        if (missing.isEmpty()) return found;
+
+        Map<K, V> loaded = Map.of();
+        try {
+            loaded = load(() -> bulkLoader.apply(missing));
+        } finally {
+            synchronized (this) {
+                for (K key : missing) {
+                    Loading loading = loadings.get(key);
+                    endLoad(key, loading);
+                    V value = loaded.get(key);
+                    if (value != null && versions.get(key) == loading.version && epoch == invalidationEpoch) {
+                        store(key, value);
+                    }
+                }
+            }
+        }
+        Map<K, V> values = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = found.containsKey(key) ? found.get(key) : loaded.get(key);
+            if (value != null) values.putIfAbsent(key, value);
+        }
+        return values;
+    }
+
+    synchronized void invalidate(K key) {
+        Loading loading = loadsByKey.get(key);
+        if (loading != null) {
+            loading.version++;
+        }
+        if (remove(key) != null) {
+            invalidations++;
+        }
+    }
+
+    synchronized void invalidateAll() {
+        invalidationEpoch++;
+        invalidations += nodes.size();
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    /**
+     * Size, request and load counts since startup. Times are in
+     * milliseconds; refreshes count as loads.
+     */
+    synchronized Map<String, Number> getMetrics() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        long requests = hits + misses;
+        metrics.put("size", nodes.size());
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("hits", hits);
+        metrics.put("misses", misses);
+        metrics.put("hitRate", requests > 0 ? (double) hits / requests : 0.0);
+        metrics.put("loads", loads);
+        metrics.put("loadFailures", loadFailures);
+        metrics.put("loadTimeAvgMs", loads > 0 ? loadNanos / 1e6 / loads : 0.0);
+        metrics.put("loadTimeMaxMs", maxLoadNanos / 1e6);
+        metrics.put("evictions", evictions);
+        metrics.put("admissionRejections", rejections);
+        metrics.put("expirations", expirations);
+        metrics.put("invalidations", invalidations);
+        metrics.put("refreshes", refreshes);
+        metrics.put("refreshFailures", refreshFailures);
+        return metrics;
+    }
+
+    // Counts the request; a live entry is touched and, if due, marked for refresh
+    private Node<V> lookup(K key, List<K> toRefresh) {
+        sketch.increment(key);
+        Node<V> node = nodes.get(key);
+        long now = System.nanoTime();
+        if (node != null && now - node.loadedAt >= ttlNanos) {
+            remove(key);
+            expirations++;
+            node = null;
+        }
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        onHit(key, node);
+        if (!node.refreshing && now - node.loadedAt >= refreshAfterNanos && sketch.frequency(key) >= REFRESH_MIN_FREQUENCY) {
+            node.refreshing = true;
+            toRefresh.add(key);
+        }
+        return node;
+    }
+
+    private void onHit(K key, Node<V> node) {
+        switch (node.segment) {
+            case WINDOW -> touch(window, key, node);
+            case PROTECTED -> touch(protectedSegment, key, node);
+            case PROBATION -> {
+                probation.remove(key);
+                node.segment = Segment.PROTECTED;
+                protectedSegment.put(key, node);
+                if (protectedSegment.size() > protectedMax) {
+                    // The protected segment's least recently used entry goes back on probation
+                    Map.Entry<K, Node<V>> demoted = protectedSegment.entrySet().iterator().next();
+                    protectedSegment.remove(demoted.getKey());
+                    demoted.getValue().segment = Segment.PROBATION;
+                    probation.put(demoted.getKey(), demoted.getValue());
+                }
+            }
+        }
+    }
+
+    private static <K, V> void touch(LinkedHashMap<K, Node<V>> segment, K key, Node<V> node) {
+        segment.remove(key);
+        segment.put(key, node);
+    }
+
+    private Loading startLoad(K key) {
+        Loading loading = loadsByKey.computeIfAbsent(key, k -> new Loading());
+        loading.count++;
+        return loading;
+    }
+
+    private void endLoad(K key, Loading loading) {
+        if (--loading.count == 0) {
+            loadsByKey.remove(key);
+        }
+    }
+
+    private void store(K key, V value) {
+        Node<V> node = nodes.get(key);
+        if (node != null) {
+            // Another reader loaded it meanwhile
+            node.value = value;
+            node.loadedAt = System.nanoTime();
+            return;
+        }
+        node = new Node<>(value, System.nanoTime());
+        nodes.put(key, node);
+        window.put(key, node);
+        evict();
+    }
+
+    // The window's overflow becomes a candidate for the main area, admitted only if read more often than its victim
+    private void evict() {
+        K candidate = null;
+        if (window.size() > windowMax) {
+            Map.Entry<K, Node<V>> eldest = window.entrySet().iterator().next();
+            candidate = eldest.getKey();
+            window.remove(candidate);
+            eldest.getValue().segment = Segment.PROBATION;
+            probation.put(candidate, eldest.getValue());
+        }
+        while (nodes.size() > maxEntries) {
+            K victim = victim(candidate);
+            if (candidate != null && !candidate.equals(victim)) {
+                if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                    remove(victim);
+                    evictions++;
+                } else {
+                    remove(candidate);
+                    rejections++;
+                    candidate = null;
+                }
+            } else {
+                remove(victim);
+                evictions++;
+                candidate = null;
+            }
+        }
+    }
+
+    private K victim(K candidate) {
+        if (!probation.isEmpty()) {
+            K eldest = probation.keySet().iterator().next();
+            if (!eldest.equals(candidate)) return eldest;
+        }
+        if (!protectedSegment.isEmpty()) return protectedSegment.keySet().iterator().next();
+        return candidate != null ? candidate : window.keySet().iterator().next();
+    }
+
+    private Node<V> remove(K key) {
+        Node<V> node = nodes.remove(key);
+        if (node != null) {
+            switch (node.segment) {
+                case WINDOW -> window.remove(key);
+                case PROBATION -> probation.remove(key);
+                case PROTECTED -> protectedSegment.remove(key);
+            }
+        }
+        return node;
+    }
+
+    private <T> T load(Supplier<T> supplier) {
+        long start = System.nanoTime();
+        try {
+            T result = supplier.get();
+            recordLoad(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loadFailures++;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void recordLoad(long nanos) {
+        loads++;
+        loadNanos += nanos;
+        maxLoadNanos = Math.max(maxLoadNanos, nanos);
+    }
+
+    // Called with the lock held; the executor only queues the reload
+    private void scheduleRefresh(List<K> keys) {
+        for (K key : keys) {
+            Node<V> node = nodes.get(key);
+            try {
+                refreshExecutor.execute(() -> reload(key, node));
+            } catch (RejectedExecutionException e) {
+                node.refreshing = false;
+            }
+        }
+    }
+
+    private void reload(K key, Node<V> node) {
+        V value;
+        try {
+            value = load(() -> loader.apply(key));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                node.refreshing = false;
+                refreshFailures++;
+            }
+            System.err.println("Cache refresh of " + key + " failed: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            node.refreshing = false;
+            // Invalidated or evicted while loading; the next read loads afresh
+            if (nodes.get(key) != node) return;
+            if (value == null) {
+                remove(key);
+                invalidations++;
+                return;
+            }
+            node.value = value;
+            node.loadedAt = System.nanoTime();
+            refreshes++;
+        }
+    }
+}
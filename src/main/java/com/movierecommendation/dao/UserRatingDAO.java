@@ -1,13 +1,22 @@
 package com.movierecommendation.dao;
 
 import com.movierecommendation.model.UserRating;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface UserRatingDAO {
     void addUserRating(UserRating userRating);
-    UserRating getUserRating(int userId, int movieId);
-    List<UserRating> getUserRatingsByUser(int userId);
-    List<UserRating> getUserRatingsByMovie(int movieId);
+    // One statement for the whole list; a later rating of the same user and movie wins
+    void addUserRatings(List<UserRating> userRatings);
+    UserRating getUserRating(Long userId, Long movieId);
+    List<UserRating> getUserRatingsByUser(Long userId);
+    // Every requested user maps to a list, empty when they have not rated anything
+    Map<Long, List<UserRating>> getUserRatingsByUsers(Collection<Long> userIds);
+    List<UserRating> getUserRatingsByMovie(Long movieId);
+    // Hands the ratings over as they are read, without holding them all in memory
+    void forEachUserRatingByMovie(Long movieId, Consumer<UserRating> action);
     void updateUserRating(UserRating userRating);
-    void deleteUserRating(int userId, int movieId);
+    void deleteUserRating(Long userId, Long movieId);
 }
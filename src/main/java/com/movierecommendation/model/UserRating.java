@@ -10,7 +10,7 @@ public class UserRating {
     private Long id;
     private Long userId;
     private Long movieId;
-    private Integer rating;
+    private Double rating;
     private String review;
     private LocalDateTime createdAt;
     
@@ -18,7 +18,7 @@ public class UserRating {
     public UserRating() {}
     
     // Constructor without ID
-    public UserRating(Long userId, Long movieId, Integer rating, String review) {
+    public UserRating(Long userId, Long movieId, Double rating, String review) {
         this.userId = userId;
         this.movieId = movieId;
         this.rating = rating;
@@ -26,7 +26,7 @@ public class UserRating {
     }
     
     // Full constructor
-    public UserRating(Long id, Long userId, Long movieId, Integer rating, String review, LocalDateTime createdAt) {
+    public UserRating(Long id, Long userId, Long movieId, Double rating, String review, LocalDateTime createdAt) {
         this.id = id;
         this.userId = userId;
         this.movieId = movieId;
@@ -45,8 +45,8 @@ public class UserRating {
     public Long getMovieId() { return movieId; }
     public void setMovieId(Long movieId) { this.movieId = movieId; }
     
-    public Integer getRating() { return rating; }
-    public void setRating(Integer rating) { this.rating = rating; }
+    public Double getRating() { return rating; }
+    public void setRating(Double rating) { this.rating = rating; }
     
     public String getReview() { return review; }
     public void setReview(String review) { this.review = review; }
@@ -69,7 +69,7 @@ public class UserRating {
     
     @Override
     public String toString() {
-        return String.format("UserRating{id=%d, userId=%d, movieId=%d, rating=%d}", 
+        return String.format("UserRating{id=%d, userId=%d, movieId=%d, rating=%.1f}", 
             id, userId, movieId, rating);
     }
 }
\ No newline at end of file
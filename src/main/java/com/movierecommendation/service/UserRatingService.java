@@ -2,7 +2,9 @@ package com.movierecommendation.service;
 
 import com.movierecommendation.dao.UserRatingDAO;
 import com.movierecommendation.model.UserRating;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class UserRatingService {
     private final UserRatingDAO userRatingDAO;
@@ -15,15 +17,23 @@ public class UserRatingService {
         userRatingDAO.addUserRating(userRating);
     }
 
-    public UserRating getRating(int userId, int movieId) {
+    public void addRatings(List<UserRating> userRatings) {
+        userRatingDAO.addUserRatings(userRatings);
+    }
+
+    public UserRating getRating(Long userId, Long movieId) {
         return userRatingDAO.getUserRating(userId, movieId);
     }
 
-    public List<UserRating> getRatingsByUser(int userId) {
+    public List<UserRating> getRatingsByUser(Long userId) {
         return userRatingDAO.getUserRatingsByUser(userId);
     }
 
-    public List<UserRating> getRatingsByMovie(int movieId) {
+    public Map<Long, List<UserRating>> getRatingsByUsers(Collection<Long> userIds) {
+        return userRatingDAO.getUserRatingsByUsers(userIds);
+    }
+
+    public List<UserRating> getRatingsByMovie(Long movieId) {
         return userRatingDAO.getUserRatingsByMovie(movieId);
     }
 
@@ -31,7 +41,7 @@ public class UserRatingService {
         userRatingDAO.updateUserRating(userRating);
     }
 
-    public void deleteRating(int userId, int movieId) {
+    public void deleteRating(Long userId, Long movieId) {
         userRatingDAO.deleteUserRating(userId, movieId);
     }
 }